@@ -0,0 +1,153 @@
+package benchmarks;
+
+import enums.Genre;
+import enums.UserType;
+import exceptions.BookAlreadyBorrowedException;
+import exceptions.EntityNotFoundException;
+import exceptions.LateBorrowingsException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import models.Book;
+import models.BookBorrowing;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of borrowing a book, which checks the user's late borrowings first, and of returning it.
+ *
+ * The active loans are spread over books with a few copies each and users with a few loans each,
+ * and some of them are late, so the late borrowings check looks users up among other users with late loans.
+ * The measured borrowings and returns use books with a single copy, which are returned or borrowed
+ * again outside of the measurement, so the number of active loans stays the same.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BorrowingBenchmark {
+
+  private static final int COPIES_PER_BOOK = 8;
+  private static final int LOANS_PER_USER = 2;
+  private static final int LATE_LOAN_SHARE = 16;
+  private static final int MEASURED_BOOK_COUNT = 1024;
+
+  @State(Scope.Benchmark)
+  public static class Loans {
+
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    private int loanCount;
+
+    private Book[] measuredBooks = new Book[MEASURED_BOOK_COUNT];
+    private User measuredUser;
+    private LocalDate today = LocalDate.now();
+
+    @Setup
+    public void lendBooks() throws Exception {
+      Book book = null;
+      User user = null;
+      LocalDate lateStartDate = this.today.minusDays(365);
+
+      for (int i = 0; i < this.loanCount; i++) {
+        if (i % COPIES_PER_BOOK == 0) {
+          book = new Book(
+            Genre.DRAMA,
+            "978-" + i,
+            "Lent title " + i,
+            "Author " + i % 5000,
+            COPIES_PER_BOOK
+          );
+        }
+
+        if (i % LOANS_PER_USER == 0) {
+          user = new User("borrower " + i, "password", UserType.CUSTOMER);
+        }
+
+        // The late loan is the user's last one, since a user with late loans can't borrow again
+        new BookBorrowing(
+          book,
+          user,
+          i % LATE_LOAN_SHARE == LOANS_PER_USER - 1 ? lateStartDate : this.today
+        );
+      }
+
+      for (int i = 0; i < MEASURED_BOOK_COUNT; i++) {
+        this.measuredBooks[i] = new Book(
+          Genre.COMEDY,
+          "979-" + i,
+          "Measured title " + i,
+          "Measured author",
+          1
+        );
+      }
+
+      this.measuredUser = new User("measured user", "password", UserType.CUSTOMER);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Borrowing {
+
+    private int nextBook;
+    private BookBorrowing borrowing;
+
+    @TearDown(Level.Invocation)
+    public void returnBook() throws EntityNotFoundException {
+      this.borrowing.returnBook();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Return {
+
+    private int nextBook;
+    private BookBorrowing borrowing;
+
+    @Setup(Level.Invocation)
+    public void borrowBook(Loans loans)
+      throws LateBorrowingsException, BookAlreadyBorrowedException {
+      this.nextBook = (this.nextBook + 1) % MEASURED_BOOK_COUNT;
+      this.borrowing = new BookBorrowing(
+        loans.measuredBooks[this.nextBook],
+        loans.measuredUser,
+        loans.today
+      );
+    }
+  }
+
+  @Benchmark
+  public BookBorrowing borrow(Loans loans, Borrowing borrowing)
+    throws LateBorrowingsException, BookAlreadyBorrowedException {
+    borrowing.nextBook = (borrowing.nextBook + 1) % MEASURED_BOOK_COUNT;
+    borrowing.borrowing =
+      new BookBorrowing(
+        loans.measuredBooks[borrowing.nextBook],
+        loans.measuredUser,
+        loans.today
+      );
+
+    return borrowing.borrowing;
+  }
+
+  @Benchmark
+  public void returnBook(Return returned) throws EntityNotFoundException {
+    returned.borrowing.returnBook();
+  }
+
+  @Benchmark
+  public boolean hasLateBorrowings(Loans loans) throws LateBorrowingsException {
+    return BookBorrowing.hasLateBorrowings(loans.measuredUser);
+  }
+}
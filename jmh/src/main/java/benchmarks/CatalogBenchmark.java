@@ -0,0 +1,106 @@
+package benchmarks;
+
+import enums.Genre;
+import exceptions.EntityNotFoundException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import models.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the catalog queries: searches that find books, searches that find none,
+ * searches by ISBN and the list of available books.
+ *
+ * Each catalog size runs in its own JVM, since books can't be removed from the catalog.
+ * The search cache is turned off, so the searches are measured instead of the cache hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+  value = 1,
+  jvmArgsAppend = { "-Xmx4g", "-Dbookstore.searchCache.maxBooks=0" }
+)
+public class CatalogBenchmark {
+
+  private static final int QUERY_COUNT = 1024;
+  private static final Genre[] GENRES = Genre.values();
+
+  @Param({ "1000", "100000", "1000000", "10000000" })
+  private int catalogSize;
+
+  private String[] titles = new String[QUERY_COUNT];
+  private String[] isbns = new String[QUERY_COUNT];
+  private int nextQuery;
+
+  @Setup
+  public void registerBooks() {
+    for (int i = 0; i < this.catalogSize; i++) {
+      new Book(
+        GENRES[i % GENRES.length],
+        isbnOf(i),
+        titleOf(i),
+        "Author " + i % 5000,
+        i % 4
+      );
+    }
+
+    int step = Math.max(1, this.catalogSize / QUERY_COUNT);
+
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      int id = i * step % this.catalogSize;
+      this.titles[i] = titleOf(id);
+      this.isbns[i] = isbnOf(id);
+    }
+  }
+
+  @Benchmark
+  public List<Book> getBooksHit() throws EntityNotFoundException {
+    return Book.getBooks(this.titles[this.nextQuery()]);
+  }
+
+  @Benchmark
+  public Object getBooksMiss() {
+    try {
+      return Book.getBooks("no book has this title");
+    } catch (EntityNotFoundException exception) {
+      return exception;
+    }
+  }
+
+  @Benchmark
+  public List<Book> getBooksByIsbn() throws EntityNotFoundException {
+    return Book.getBooks(this.isbns[this.nextQuery()]);
+  }
+
+  @Benchmark
+  public List<Book> getAvailableBooks() {
+    return Book.getAvailableBooks();
+  }
+
+  private int nextQuery() {
+    this.nextQuery = (this.nextQuery + 1) % QUERY_COUNT;
+
+    return this.nextQuery;
+  }
+
+  private static String isbnOf(int id) {
+    return String.format("978-%010d", id);
+  }
+
+  private static String titleOf(int id) {
+    return "Title " + Integer.toString(id, 36) + " volume " + id % 7;
+  }
+}
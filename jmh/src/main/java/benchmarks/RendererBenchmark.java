@@ -0,0 +1,86 @@
+package benchmarks;
+
+import enums.Genre;
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import models.Book;
+import models.ConsoleRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of displaying a list of books with the console renderer, which flushes once per list,
+ * against displaying each book on its own, which flushes once per book.
+ *
+ * System.out is replaced by a stream writing to /dev/null with the same small buffer and
+ * automatic flushing as the console's, so each flush still costs a write to the operating system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RendererBenchmark {
+
+  private static final int CONSOLE_BUFFER_SIZE = 128;
+
+  @Param({ "20", "1000" })
+  private int bookCount;
+
+  private List<Book> books = new ArrayList<>();
+  private PrintStream console;
+
+  @Setup
+  public void redirectOutput() throws FileNotFoundException {
+    for (int i = 0; i < this.bookCount; i++) {
+      this.books.add(
+        new Book(Genre.FANTASY, "978-" + i, "Title " + i, "Author " + i, 1000 + i)
+      );
+    }
+
+    this.console = System.out;
+    System.setOut(
+      new PrintStream(
+        new BufferedOutputStream(
+          new FileOutputStream("/dev/null"),
+          CONSOLE_BUFFER_SIZE
+        ),
+        true
+      )
+    );
+  }
+
+  @TearDown
+  public void restoreOutput() {
+    System.out.close();
+    System.setOut(this.console);
+  }
+
+  @Benchmark
+  public void renderBooks() {
+    ConsoleRenderer.renderBooks(this.books);
+  }
+
+  @Benchmark
+  public void displayEachBook() {
+    for (Book book : this.books) {
+      book.displayInfo();
+    }
+  }
+}
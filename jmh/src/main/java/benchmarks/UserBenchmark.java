@@ -0,0 +1,78 @@
+package benchmarks;
+
+import enums.UserType;
+import exceptions.EntityNotFoundException;
+import java.util.concurrent.TimeUnit;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the user lookups: logging in and finding a user by username.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserBenchmark {
+
+  private static final int QUERY_COUNT = 1024;
+
+  @Param({ "1000", "100000", "1000000", "10000000" })
+  private int userCount;
+
+  private String[] usernames = new String[QUERY_COUNT];
+  private String[] passwords = new String[QUERY_COUNT];
+  private int nextQuery;
+
+  @Setup
+  public void createUsers() {
+    for (int i = 0; i < this.userCount; i++) {
+      new User(usernameOf(i), passwordOf(i), UserType.CUSTOMER);
+    }
+
+    int step = Math.max(1, this.userCount / QUERY_COUNT);
+
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      this.usernames[i] = usernameOf(i * step % this.userCount);
+      this.passwords[i] = passwordOf(i * step % this.userCount);
+    }
+  }
+
+  @Benchmark
+  public User login() {
+    int query = this.nextQuery();
+
+    return User.login(this.usernames[query], this.passwords[query]);
+  }
+
+  @Benchmark
+  public User getUserByUsername() throws EntityNotFoundException {
+    return User.getUserByUsername(this.usernames[this.nextQuery()]);
+  }
+
+  private int nextQuery() {
+    this.nextQuery = (this.nextQuery + 1) % QUERY_COUNT;
+
+    return this.nextQuery;
+  }
+
+  private static String usernameOf(int id) {
+    return "user " + id;
+  }
+
+  private static String passwordOf(int id) {
+    return "password " + id;
+  }
+}
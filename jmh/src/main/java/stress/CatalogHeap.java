@@ -0,0 +1,122 @@
+package stress;
+
+import exceptions.EntityNotFoundException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import models.Book;
+import models.CatalogImporter;
+
+/**
+ * Measurement of the heap taken by the catalog with the books kept as objects or in columns.
+ *
+ * The catalog is imported from a generated CSV file, and the heap is measured after a full garbage collection
+ * before the import, after it, and again after reading many books of the catalog, so books read by queries
+ * that stay in memory show up as growth. The storage can only be chosen once per process,
+ * so each storage is measured in its own run.
+ *
+ * Usage: gradle :jmh:stress -Pharness=CatalogHeap -PstressArgs='objects|columnar books reads'
+ */
+public class CatalogHeap {
+
+  private static final String[] GENRES = { "action", "drama", "comedy", "fantasy" };
+
+  public static void main(String[] args) throws Exception {
+    String storage = args.length > 0 ? args[0] : "columnar";
+    int bookCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+    int readCount = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+    Path catalogFile = Files.createTempFile("catalog", ".csv");
+
+    try {
+      writeCatalog(catalogFile, bookCount);
+
+      if (storage.equals("columnar")) {
+        Book.useColumnarStorage();
+      }
+
+      long emptyHeap = usedHeap();
+      CatalogImporter.Report report = CatalogImporter.importCatalog(catalogFile);
+      long importedHeap = usedHeap();
+      boolean isStockShared = readBooks(bookCount, readCount);
+      long readHeap = usedHeap();
+
+      System.out.printf(
+        "%s: %,d books imported in %.1f s, %.1f bytes per book, %+.1f MB after reading %,d books, stock shared by reads of a book: %s%n",
+        storage,
+        report.getImportedRows(),
+        report.getElapsedSeconds(),
+        (importedHeap - emptyHeap) / (double) bookCount,
+        (readHeap - importedHeap) / 1e6,
+        readCount,
+        isStockShared
+      );
+      System.exit(isStockShared ? 0 : 1);
+    } finally {
+      Files.deleteIfExists(catalogFile);
+    }
+  }
+
+  private static void writeCatalog(Path catalogFile, int bookCount) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(catalogFile)) {
+      for (int i = 0; i < bookCount; i++) {
+        writer.write(
+          isbnOf(i) +
+          ",The Book Number " +
+          i +
+          ",Author Name " +
+          i % 5000 +
+          "," +
+          GENRES[i % GENRES.length] +
+          "," +
+          i % 4
+        );
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * This method reads books by ISBN, keeping none of them, and checks that two reads of the same book
+   * share its stock.
+   *
+   * @return true if a copy added through one read of a book is seen by another read of it.
+   */
+  private static boolean readBooks(int bookCount, int readCount)
+    throws EntityNotFoundException {
+    long checksum = 0;
+
+    for (int i = 0; i < readCount; i++) {
+      checksum += Book.getByIsbn(isbnOf((int) (i * 7919L % bookCount))).getQuantityAvailable();
+    }
+
+    Book firstRead = Book.getByIsbn(isbnOf(1));
+    Book secondRead = Book.getByIsbn(isbnOf(1));
+    int quantity = secondRead.getQuantityAvailable();
+
+    firstRead.setQuantityAvailable(quantity + 1);
+
+    boolean isStockShared =
+      firstRead.equals(secondRead) &&
+      secondRead.getQuantityAvailable() == quantity + 1;
+
+    secondRead.setQuantityAvailable(quantity);
+
+    return isStockShared && checksum >= 0;
+  }
+
+  private static long usedHeap() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static String isbnOf(int id) {
+    return String.format("978-%010d", id);
+  }
+}
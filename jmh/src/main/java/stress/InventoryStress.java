@@ -0,0 +1,238 @@
+package stress;
+
+import enums.Genre;
+import enums.UserType;
+import exceptions.BookAlreadyBorrowedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import models.Book;
+import models.BookBorrowing;
+import models.User;
+
+/**
+ * Stress test of the concurrent inventory: threads borrow and return random books with few copies
+ * as fast as they can, first with one thread and then with more, each time on new books.
+ *
+ * While the threads run, another thread keeps checking that no book has negative stock
+ * and that no book has more copies lent than it has. At the end of each run every book must have
+ * all its copies back. The borrowings per second of each run show how the throughput scales
+ * with the number of threads, which is only meaningful up to the number of cores.
+ *
+ * Books are found by ISBN before each borrowing and the borrowing by ISBN before each return,
+ * the way the console and the HTTP API do, so with the columnar storage every step works on
+ * a new Book object of the record.
+ *
+ * Usage: gradle :jmh:stress -Pharness=InventoryStress -PstressArgs='[columnar] books copies seconds threads...'
+ */
+public class InventoryStress {
+
+  public static void main(String[] args) throws Exception {
+    boolean isColumnar = args.length > 0 && args[0].equals("columnar");
+    int firstArg = isColumnar ? 1 : 0;
+    int bookCount = args.length > firstArg ? Integer.parseInt(args[firstArg]) : 64;
+    int copies = args.length > firstArg + 1 ? Integer.parseInt(args[firstArg + 1]) : 2;
+    int seconds = args.length > firstArg + 2 ? Integer.parseInt(args[firstArg + 2]) : 3;
+    List<Integer> threadCounts = new ArrayList<>();
+
+    if (isColumnar) {
+      Book.useColumnarStorage();
+    }
+
+    for (int i = firstArg + 3; i < args.length; i++) {
+      threadCounts.add(Integer.parseInt(args[i]));
+    }
+
+    if (threadCounts.isEmpty()) {
+      threadCounts = List.of(1, 2, 4, 8);
+    }
+
+    System.out.printf(
+      "%s storage, %d books with %d copies, %d s per run, %d cores%n",
+      isColumnar ? "columnar" : "object",
+      bookCount,
+      copies,
+      seconds,
+      Runtime.getRuntime().availableProcessors()
+    );
+
+    // Compiles the borrowing code before the measured runs, so the first one isn't slower for it
+    Run warmUp = new Run("warm-up", 1, bookCount, copies, seconds);
+    warmUp.execute();
+
+    boolean isConsistent = warmUp.isConsistent();
+    double singleThreadThroughput = 0;
+
+    for (int threads : threadCounts) {
+      Run run = new Run(threads + "-threads", threads, bookCount, copies, seconds);
+      run.execute();
+
+      if (singleThreadThroughput == 0) {
+        singleThreadThroughput = run.throughput();
+      }
+
+      System.out.printf(
+        "%2d threads: %,10.0f borrowings/s (x%.2f), %,d failed for lack of copies, min stock %d, max lent %d/%d, errors %d, %s%n",
+        threads,
+        run.throughput(),
+        run.throughput() / singleThreadThroughput,
+        run.failed.get(),
+        run.minStock,
+        run.maxLent,
+        copies,
+        run.errors.get(),
+        run.isConsistent() ? "OK" : "FAILED"
+      );
+      isConsistent &= run.isConsistent();
+    }
+
+    System.out.println(
+      isConsistent
+        ? "OK: no stock went negative and no copy was lent twice"
+        : "FAILED: a book was oversold"
+    );
+    System.exit(isConsistent ? 0 : 1);
+  }
+
+  /**
+   * One run of the test with a number of threads on its own books.
+   */
+  private static class Run {
+
+    private String name;
+    private int threads;
+    private int copies;
+    private long seconds;
+    private Book[] books;
+    private String[] isbns;
+    private AtomicIntegerArray lent;
+    private AtomicLong borrowings = new AtomicLong();
+    private AtomicLong failed = new AtomicLong();
+    private AtomicLong errors = new AtomicLong();
+    private volatile int minStock;
+    private volatile int maxLent;
+    private long elapsedTime;
+
+    private Run(String name, int threads, int bookCount, int copies, int seconds) {
+      this.name = name;
+      this.threads = threads;
+      this.copies = copies;
+      this.seconds = seconds;
+      this.books = new Book[bookCount];
+      this.isbns = new String[bookCount];
+      this.lent = new AtomicIntegerArray(bookCount);
+      this.minStock = copies;
+
+      for (int i = 0; i < bookCount; i++) {
+        this.isbns[i] = "stress-" + name + "-" + i;
+        this.books[i] = new Book(
+          Genre.ADVENTURE,
+          this.isbns[i],
+          "Stress title " + i,
+          "Stress author",
+          copies
+        );
+      }
+    }
+
+    private void execute() throws Exception {
+      ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+      AtomicBoolean isRunning = new AtomicBoolean(true);
+      Thread checker = new Thread(() -> this.check(isRunning));
+      List<Future<?>> tasks = new ArrayList<>();
+      long startTime = System.nanoTime();
+
+      checker.start();
+
+      for (int i = 0; i < this.threads; i++) {
+        User user = new User(
+          "stress user " + this.name + "-" + i,
+          "password",
+          UserType.CUSTOMER
+        );
+        tasks.add(pool.submit(() -> this.borrowAndReturn(user, isRunning)));
+      }
+
+      Thread.sleep(TimeUnit.SECONDS.toMillis(this.seconds));
+      isRunning.set(false);
+
+      for (Future<?> task : tasks) {
+        task.get(1, TimeUnit.MINUTES);
+      }
+
+      this.elapsedTime = System.nanoTime() - startTime;
+      pool.shutdown();
+      checker.join();
+    }
+
+    private void borrowAndReturn(User user, AtomicBoolean isRunning) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      LocalDate today = LocalDate.now();
+
+      while (isRunning.get()) {
+        int index = random.nextInt(this.books.length);
+
+        try {
+          new BookBorrowing(Book.getByIsbn(this.isbns[index]), user, today);
+
+          if (this.lent.incrementAndGet(index) > this.copies) {
+            this.errors.incrementAndGet();
+          }
+
+          this.borrowings.incrementAndGet();
+          this.lent.decrementAndGet(index);
+          BookBorrowing
+            .getUserBorrowingByBookIsbn(user, this.isbns[index])
+            .returnBook();
+        } catch (BookAlreadyBorrowedException e) {
+          this.failed.incrementAndGet();
+        } catch (Exception e) {
+          this.errors.incrementAndGet();
+          e.printStackTrace();
+        }
+      }
+    }
+
+    private void check(AtomicBoolean isRunning) {
+      do {
+        for (int i = 0; i < this.books.length; i++) {
+          int stock = this.books[i].getQuantityAvailable();
+          int lentCopies = this.lent.get(i);
+
+          if (stock < this.minStock) {
+            this.minStock = stock;
+          }
+
+          if (lentCopies > this.maxLent) {
+            this.maxLent = lentCopies;
+          }
+        }
+
+        // Leaves the cores to the borrowers between passes
+        Thread.yield();
+      } while (isRunning.get());
+    }
+
+    private double throughput() {
+      return this.borrowings.get() / (this.elapsedTime / 1e9);
+    }
+
+    private boolean isConsistent() {
+      for (Book book : this.books) {
+        if (book.getQuantityAvailable() != this.copies) {
+          return false;
+        }
+      }
+
+      return this.errors.get() == 0 && this.minStock >= 0 && this.maxLent <= this.copies;
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package stress;
+
+import enums.Genre;
+import enums.UserType;
+import exceptions.BookAlreadyBorrowedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import models.Book;
+import models.BookBorrowing;
+import models.User;
+
+/**
+ * Stress test of the waitlist: many users reserve a book with few copies at the same time,
+ * hold the copy for a moment and return it, and some of them give up while waiting.
+ *
+ * Each returned copy must go to exactly one waiting user or back to the stock, so the test checks that
+ * no more copies are held at once than the book has, that no borrowing is handed to two users,
+ * that every reservation ends with a borrowing or a cancellation,
+ * and that all the copies are back in the stock once every user has returned theirs.
+ *
+ * Then the users wait for a book without copies while other users keep trying to borrow it without waiting,
+ * and the book is restocked with one copy per waiting user: every copy must go to a waiting user.
+ *
+ * Usage: gradle :jmh:stress -Pharness=WaitlistStress -PstressArgs='copies users rounds threads'
+ */
+public class WaitlistStress {
+
+  private static final int CANCEL_SHARE = 10;
+  private static final long SETTLE_MILLIS = 5000;
+
+  public static void main(String[] args) throws Exception {
+    int copies = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    int threads = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+
+    Book book = new Book(Genre.FANTASY, "555", "Contended Book", "Someone", copies);
+    List<User> users = new ArrayList<>();
+
+    for (int i = 0; i < userCount; i++) {
+      users.add(new User("waiter " + i, "password", UserType.CUSTOMER));
+    }
+
+    AtomicInteger lent = new AtomicInteger();
+    AtomicInteger cancelled = new AtomicInteger();
+    AtomicInteger waited = new AtomicInteger();
+    AtomicInteger held = new AtomicInteger();
+    AtomicInteger maxHeld = new AtomicInteger();
+    AtomicInteger errors = new AtomicInteger();
+    Set<Long> borrowingIds = ConcurrentHashMap.newKeySet();
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> tasks = new ArrayList<>();
+    long startTime = System.nanoTime();
+
+    for (User user : users) {
+      tasks.add(
+        pool.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+
+          for (int round = 0; round < rounds; round++) {
+            try {
+              CompletableFuture<BookBorrowing> reservation = BookBorrowing.reserve(
+                book,
+                user
+              );
+
+              if (!reservation.isDone()) {
+                waited.incrementAndGet();
+              }
+
+              if (random.nextInt(CANCEL_SHARE) == 0 && reservation.cancel(false)) {
+                cancelled.incrementAndGet();
+                continue;
+              }
+
+              BookBorrowing borrowing = reservation.get(30, TimeUnit.SECONDS);
+
+              if (borrowing.getBorrower() != user || !borrowingIds.add(borrowing.getId())) {
+                errors.incrementAndGet();
+              }
+
+              maxHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+              lent.incrementAndGet();
+
+              if (random.nextBoolean()) {
+                Thread.yield();
+              }
+
+              held.decrementAndGet();
+              borrowing.returnBook();
+            } catch (CancellationException e) {
+              errors.incrementAndGet();
+            } catch (Exception e) {
+              errors.incrementAndGet();
+              e.printStackTrace();
+            }
+          }
+        })
+      );
+    }
+
+    for (Future<?> task : tasks) {
+      task.get(5, TimeUnit.MINUTES);
+    }
+
+    pool.shutdown();
+    long elapsedTime = System.nanoTime() - startTime;
+
+    // Copies handed to users who had cancelled are given back on the waitlist's notifier thread
+    long settleDeadline = System.currentTimeMillis() + SETTLE_MILLIS;
+
+    while (
+      book.getQuantityAvailable() != copies &&
+      System.currentTimeMillis() < settleDeadline
+    ) {
+      Thread.sleep(10);
+    }
+
+    System.out.printf(
+      "%d users x %d rounds on %d copies with %d threads: %d borrowings (%d waited), %d cancelled, %.1f ms%n",
+      userCount,
+      rounds,
+      copies,
+      threads,
+      lent.get(),
+      waited.get(),
+      cancelled.get(),
+      elapsedTime / 1e6
+    );
+    System.out.printf(
+      "max held at once %d, distinct borrowings %d, errors %d, stock %d/%d, still lent %s, still waiting %d%n",
+      maxHeld.get(),
+      borrowingIds.size(),
+      errors.get(),
+      book.getQuantityAvailable(),
+      copies,
+      BookBorrowing.getBookBorrowing(book) != null,
+      BookBorrowing.countWaitingUsers(book)
+    );
+
+    boolean isConsistent =
+      errors.get() == 0 &&
+      maxHeld.get() <= copies &&
+      borrowingIds.size() == lent.get() &&
+      lent.get() + cancelled.get() == userCount * rounds &&
+      book.getQuantityAvailable() == copies &&
+      BookBorrowing.getBookBorrowing(book) == null &&
+      BookBorrowing.countWaitingUsers(book) == 0;
+
+    System.out.println(
+      isConsistent
+        ? "OK: every returned copy went to exactly one user or back to the stock"
+        : "FAILED: a copy was lost or handed to more than one user"
+    );
+
+    boolean isRestockFair = checkRestock(users, threads);
+
+    System.exit(isConsistent && isRestockFair ? 0 : 1);
+  }
+
+  /**
+   * This method makes the users wait for a book without copies, restocks it with one copy per user
+   * while other threads try to borrow it without waiting, and checks that the waiting users got every copy.
+   */
+  private static boolean checkRestock(List<User> users, int threads) throws Exception {
+    Book book = new Book(Genre.FANTASY, "556", "Restocked Book", "Someone", 0);
+    List<CompletableFuture<BookBorrowing>> reservations = new ArrayList<>();
+
+    for (User user : users) {
+      reservations.add(BookBorrowing.reserve(book, user));
+    }
+
+    AtomicBoolean isRunning = new AtomicBoolean(true);
+    AtomicInteger cutIns = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> tasks = new ArrayList<>();
+
+    for (int i = 0; i < threads; i++) {
+      User user = new User("cutter " + i, "password", UserType.CUSTOMER);
+
+      tasks.add(
+        pool.submit(() -> {
+          while (isRunning.get()) {
+            try {
+              new BookBorrowing(book, user, LocalDate.now());
+              cutIns.incrementAndGet();
+            } catch (BookAlreadyBorrowedException e) {
+              Thread.yield();
+            }
+          }
+
+          return null;
+        })
+      );
+    }
+
+    book.setQuantityAvailable(users.size());
+
+    int served = 0;
+
+    for (CompletableFuture<BookBorrowing> reservation : reservations) {
+      if (reservation.get(30, TimeUnit.SECONDS) != null) {
+        served++;
+      }
+    }
+
+    isRunning.set(false);
+
+    for (Future<?> task : tasks) {
+      task.get(1, TimeUnit.MINUTES);
+    }
+
+    pool.shutdown();
+
+    boolean isFair = served == users.size() && cutIns.get() == 0 && book.getQuantityAvailable() == 0;
+
+    System.out.printf(
+      "restock of %d copies for %d waiting users: %d served, %d taken by users who didn't wait, stock %d%n",
+      users.size(),
+      users.size(),
+      served,
+      cutIns.get(),
+      book.getQuantityAvailable()
+    );
+    System.out.println(
+      isFair
+        ? "OK: every restocked copy went to a waiting user"
+        : "FAILED: a restocked copy was taken ahead of the waiting users"
+    );
+
+    return isFair;
+  }
+}
@@ -1,12 +1,80 @@
 import enums.UserType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import metrics.FlightRecording;
+import models.Book;
+import models.Journal;
 import models.User;
 import services.BookBorrowingService;
 import services.BookService;
+import services.HttpApiService;
 import services.UserService;
 
 public class App {
 
+  private static final int DEFAULT_SERVER_PORT = 8080;
+
   public static void main(String[] args) throws Exception {
+    boolean isServerMode = false;
+    int port = DEFAULT_SERVER_PORT;
+    Path dataDirectory = null;
+    Path catalogFile = null;
+    boolean isColumnarStorage = false;
+    Path exportedCatalogFile = null;
+    List<Path> importedFiles = new ArrayList<>();
+    Path recordingFile = null;
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--catalog" -> catalogFile = Path.of(args[++i]);
+        case "--columnar" -> isColumnarStorage = true;
+        case "--export-catalog" -> exportedCatalogFile = Path.of(args[++i]);
+        case "--data-dir" -> dataDirectory = Path.of(args[++i]);
+        case "--import" -> importedFiles.add(Path.of(args[++i]));
+        case "--record-events" -> recordingFile = Path.of(args[++i]);
+        case "--server" -> {
+          isServerMode = true;
+
+          if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+            port = Integer.parseInt(args[++i]);
+          }
+        }
+      }
+    }
+
+    // A catalog file is read in its own format, so the books can't be stored in columns as well
+    if (catalogFile != null && isColumnarStorage) {
+      System.err.println("The options --catalog and --columnar can't be used together");
+      System.exit(1);
+    }
+
+    if (recordingFile != null) {
+      FlightRecording.start(recordingFile);
+    }
+
+    // The catalog file and the saved state must be loaded before anything else is created
+    if (catalogFile != null) {
+      Book.openCatalog(catalogFile);
+    } else if (isColumnarStorage) {
+      Book.useColumnarStorage();
+    }
+
+    if (dataDirectory != null) {
+      Journal.open(dataDirectory);
+    }
+
+    importedFiles.forEach(BookService::importBooks);
+
+    if (exportedCatalogFile != null) {
+      Book.writeCatalog(exportedCatalogFile);
+    }
+
+    if (isServerMode) {
+      HttpApiService.start(port);
+      return;
+    }
+
     System.out.println(
       "Welcome to the bookstore!\nYou need to login to continue:"
     );
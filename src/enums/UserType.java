@@ -2,5 +2,20 @@ package enums;
 
 public enum UserType {
   EMPLOYEE,
-  CUSTOMER
+  CUSTOMER;
+
+  private static final int DEFAULT_LOAN_DAYS = 14;
+
+  // Set with -Dbookstore.loanDays.employee=<days> or -Dbookstore.loanDays.customer=<days>
+  private final int loanDays = Integer.getInteger(
+    "bookstore.loanDays." + this.name().toLowerCase(),
+    DEFAULT_LOAN_DAYS
+  );
+
+  /**
+   * This method retrieves how many days the users of this type can keep a borrowed book.
+   */
+  public int getLoanDays() {
+    return this.loanDays;
+  }
 }
@@ -1,7 +1,10 @@
 package exceptions;
 
+import metrics.ExceptionCounters;
+
 public class BookAlreadyBorrowedException extends Exception {
   public BookAlreadyBorrowedException() {
-    super("This book has already been borrowed");
+    super("All the copies of this book have already been borrowed");
+    ExceptionCounters.count(this);
   }
 }
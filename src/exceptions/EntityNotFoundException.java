@@ -1,7 +1,10 @@
 package exceptions;
 
+import metrics.ExceptionCounters;
+
 public class EntityNotFoundException extends Exception {
   public EntityNotFoundException(String message) {
     super(message);
+    ExceptionCounters.count(this);
   }
 }
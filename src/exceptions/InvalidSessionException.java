@@ -0,0 +1,13 @@
+package exceptions;
+
+import metrics.ExceptionCounters;
+
+public class InvalidSessionException extends Exception {
+
+  public InvalidSessionException() {
+    super(
+      "A valid session token is required, log in to get one and send it as a Bearer token"
+    );
+    ExceptionCounters.count(this);
+  }
+}
@@ -1,10 +1,13 @@
 package exceptions;
 
+import metrics.ExceptionCounters;
+
 public class LateBorrowingsException extends Exception {
 
   public LateBorrowingsException() {
     super(
       "The user can't borrow another book because he has borrowed books before and still didn't return them"
     );
+    ExceptionCounters.count(this);
   }
 }
@@ -0,0 +1,24 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("bookstore.AvailableBooks")
+@Label("Available Books")
+@Category("Bookstore")
+@Description("A call to Book.getAvailableBooks")
+public class AvailableBooksEvent extends Event {
+
+  @Label("Candidates")
+  public int candidateCount;
+
+  @Label("Results")
+  public int resultCount;
+
+  @Label("Cache Hit")
+  @Description("Whether the page was returned from the search cache without reading the catalog")
+  public boolean cacheHit;
+}
@@ -0,0 +1,23 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("bookstore.BookBorrowing")
+@Label("Book Borrowing")
+@Category("Bookstore")
+@Description("The creation of a BookBorrowing, including the late borrowings check")
+public class BookBorrowingEvent extends Event {
+
+  @Label("User")
+  public String username;
+
+  @Label("ISBN")
+  public String isbn;
+
+  @Label("Borrowed")
+  public boolean borrowed;
+}
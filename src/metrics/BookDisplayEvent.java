@@ -0,0 +1,17 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("bookstore.BookDisplay")
+@Label("Book Display")
+@Category("Bookstore")
+@Description("The console printing a list of books through ConsoleRenderer")
+public class BookDisplayEvent extends Event {
+
+  @Label("Books")
+  public int bookCount;
+}
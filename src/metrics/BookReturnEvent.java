@@ -0,0 +1,23 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("bookstore.BookReturn")
+@Label("Book Return")
+@Category("Bookstore")
+@Description("A call to BookBorrowing.returnBook")
+public class BookReturnEvent extends Event {
+
+  @Label("User")
+  public String username;
+
+  @Label("ISBN")
+  public String isbn;
+
+  @Label("Returned")
+  public boolean returned;
+}
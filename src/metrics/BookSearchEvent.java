@@ -0,0 +1,33 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("bookstore.BookSearch")
+@Label("Book Search")
+@Category("Bookstore")
+@Description("A call to Book.getBooks")
+public class BookSearchEvent extends Event {
+
+  @Label("Term Length")
+  public int termLength;
+
+  @Label("Lower Casing Time")
+  @Timespan(Timespan.NANOSECONDS)
+  public long lowerCasingTime;
+
+  @Label("Candidates")
+  @Description("Books compared with the term, through the trigram index or a scan")
+  public int candidateCount;
+
+  @Label("Results")
+  public int resultCount;
+
+  @Label("Cache Hit")
+  @Description("Whether the page was returned from the search cache without reading the catalog")
+  public boolean cacheHit;
+}
@@ -0,0 +1,96 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Hit, miss, eviction and invalidation counters of a cache,
+ * published as the MBean bookstore:type=Cache,name=<cache name>.
+ */
+public class CacheMetrics implements CacheMetricsMBean {
+
+  private LongAdder hits = new LongAdder();
+  private LongAdder misses = new LongAdder();
+  private LongAdder evictions = new LongAdder();
+  private LongAdder invalidations = new LongAdder();
+  private IntSupplier size;
+
+  private CacheMetrics(IntSupplier size) {
+    this.size = size;
+  }
+
+  /**
+   * This method creates the metrics of a cache and publishes them.
+   * If the MBean can't be registered the metrics are still recorded.
+   *
+   * @param name The name of the cache, like "Book.search".
+   * @param size Supplies the current number of entries in the cache.
+   * @return The metrics of the cache.
+   */
+  public static CacheMetrics of(String name, IntSupplier size) {
+    CacheMetrics metrics = new CacheMetrics(size);
+    OperationMetrics.register("bookstore:type=Cache,name=" + name, metrics);
+
+    return metrics;
+  }
+
+  public void recordHit() {
+    this.hits.increment();
+  }
+
+  public void recordMiss() {
+    this.misses.increment();
+  }
+
+  public void recordEviction() {
+    this.evictions.increment();
+  }
+
+  public void recordInvalidation() {
+    this.invalidations.increment();
+  }
+
+  @Override
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  @Override
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  /**
+   * This method retrieves the share of lookups answered by the cache since the metrics were created or last reset.
+   */
+  @Override
+  public double getHitRate() {
+    long hits = this.getHits();
+    long lookups = hits + this.getMisses();
+
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  @Override
+  public long getEvictions() {
+    return this.evictions.sum();
+  }
+
+  @Override
+  public long getInvalidations() {
+    return this.invalidations.sum();
+  }
+
+  @Override
+  public int getSize() {
+    return this.size.getAsInt();
+  }
+
+  @Override
+  public void reset() {
+    this.hits.reset();
+    this.misses.reset();
+    this.evictions.reset();
+    this.invalidations.reset();
+  }
+}
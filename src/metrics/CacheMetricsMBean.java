@@ -0,0 +1,20 @@
+package metrics;
+
+/**
+ * Management interface of CacheMetrics.
+ */
+public interface CacheMetricsMBean {
+  long getHits();
+
+  long getMisses();
+
+  double getHitRate();
+
+  long getEvictions();
+
+  long getInvalidations();
+
+  int getSize();
+
+  void reset();
+}
@@ -0,0 +1,66 @@
+package metrics;
+
+import exceptions.BookAlreadyBorrowedException;
+import exceptions.EntityNotFoundException;
+import exceptions.LateBorrowingsException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the domain exceptions created by the application,
+ * published as the MBean bookstore:type=Exceptions.
+ */
+public class ExceptionCounters implements ExceptionCountersMBean {
+
+  private static ExceptionCounters instance = new ExceptionCounters();
+
+  private LongAdder entityNotFoundExceptions = new LongAdder();
+  private LongAdder lateBorrowingsExceptions = new LongAdder();
+  private LongAdder bookAlreadyBorrowedExceptions = new LongAdder();
+
+  static {
+    OperationMetrics.register(
+      "bookstore:type=Exceptions",
+      ExceptionCounters.instance
+    );
+  }
+
+  private ExceptionCounters() {}
+
+  /**
+   * This method counts an exception. It is called by the constructors of the domain exceptions,
+   * so every exception is counted once no matter where it is caught.
+   *
+   * @param exception The exception being created.
+   */
+  public static void count(Exception exception) {
+    if (exception instanceof EntityNotFoundException) {
+      ExceptionCounters.instance.entityNotFoundExceptions.increment();
+    } else if (exception instanceof LateBorrowingsException) {
+      ExceptionCounters.instance.lateBorrowingsExceptions.increment();
+    } else if (exception instanceof BookAlreadyBorrowedException) {
+      ExceptionCounters.instance.bookAlreadyBorrowedExceptions.increment();
+    }
+  }
+
+  @Override
+  public long getEntityNotFoundExceptions() {
+    return this.entityNotFoundExceptions.sum();
+  }
+
+  @Override
+  public long getLateBorrowingsExceptions() {
+    return this.lateBorrowingsExceptions.sum();
+  }
+
+  @Override
+  public long getBookAlreadyBorrowedExceptions() {
+    return this.bookAlreadyBorrowedExceptions.sum();
+  }
+
+  @Override
+  public void reset() {
+    this.entityNotFoundExceptions.reset();
+    this.lateBorrowingsExceptions.reset();
+    this.bookAlreadyBorrowedExceptions.reset();
+  }
+}
@@ -0,0 +1,14 @@
+package metrics;
+
+/**
+ * Management interface of ExceptionCounters.
+ */
+public interface ExceptionCountersMBean {
+  long getEntityNotFoundExceptions();
+
+  long getLateBorrowingsExceptions();
+
+  long getBookAlreadyBorrowedExceptions();
+
+  void reset();
+}
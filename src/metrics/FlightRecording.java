@@ -0,0 +1,48 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+/**
+ * Records the bookstore's JDK Flight Recorder events to a file.
+ *
+ * The events are always created by the measured operations, but while no recording
+ * is running their commit is a no-op that the JIT removes, together with the event object.
+ */
+public class FlightRecording {
+
+  private static final List<Class<? extends Event>> EVENT_TYPES = List.of(
+    BookSearchEvent.class,
+    AvailableBooksEvent.class,
+    BookBorrowingEvent.class,
+    LateBorrowingsCheckEvent.class,
+    BookReturnEvent.class,
+    BookDisplayEvent.class
+  );
+
+  /**
+   * This method starts recording the bookstore events, with no duration threshold.
+   * The recording is written to the file when the JVM exits.
+   *
+   * @param path The path of the .jfr file.
+   * @throws IOException If the file can't be used as the recording's destination.
+   */
+  public static void start(Path path) throws IOException {
+    Recording recording = new Recording();
+
+    for (Class<? extends Event> eventType : EVENT_TYPES) {
+      recording.enable(eventType).withoutThreshold();
+    }
+
+    recording.setName("bookstore");
+    recording.setToDisk(true);
+    recording.setDestination(path);
+    recording.setDumpOnExit(true);
+    recording.start();
+
+    System.out.println("Recording the bookstore events to " + path);
+  }
+}
@@ -0,0 +1,20 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("bookstore.LateBorrowingsCheck")
+@Label("Late Borrowings Check")
+@Category("Bookstore")
+@Description("A call to BookBorrowing.hasLateBorrowings")
+public class LateBorrowingsCheckEvent extends Event {
+
+  @Label("User")
+  public String username;
+
+  @Label("Has Late Borrowings")
+  public boolean hasLateBorrowings;
+}
@@ -0,0 +1,124 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds.
+ *
+ * Every power of two is split into 16 buckets, so a recorded value is off by at most
+ * 1/16 of itself. The buckets are LongAdders created up front, so recording a value
+ * never allocates and concurrent recorders don't contend on the same counter.
+ */
+class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT =
+    (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+  private LongAdder totalNanos = new LongAdder();
+  private LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  LatencyHistogram() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      this.buckets[i] = new LongAdder();
+    }
+  }
+
+  void record(long nanos) {
+    long value = Math.max(nanos, 0);
+
+    this.buckets[bucketOf(value)].increment();
+    this.totalNanos.add(value);
+    this.maxNanos.accumulate(value);
+  }
+
+  /**
+   * This method sums the buckets, so the recording path updates one counter less.
+   */
+  long getCount() {
+    long count = 0;
+
+    for (LongAdder bucket : this.buckets) {
+      count += bucket.sum();
+    }
+
+    return count;
+  }
+
+  long getTotalNanos() {
+    return this.totalNanos.sum();
+  }
+
+  long getMaxNanos() {
+    return this.maxNanos.get();
+  }
+
+  /**
+   * This method estimates a percentile from a snapshot of the buckets.
+   * Buckets keep being updated while they are read, so the estimate is approximate under load.
+   *
+   * @param percentile The percentile, between 0 and 100.
+   * @return The middle of the bucket holding the percentile, in nanoseconds, or 0 if nothing was recorded.
+   */
+  long getPercentile(double percentile) {
+    long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = this.buckets[i].sum();
+      total += counts[i];
+    }
+
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max((long) Math.ceil(total * percentile / 100), 1);
+    long seen = 0;
+
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+
+      if (seen >= rank) {
+        return Math.min(middleOf(i), this.getMaxNanos());
+      }
+    }
+
+    return this.getMaxNanos();
+  }
+
+  void reset() {
+    for (LongAdder bucket : this.buckets) {
+      bucket.reset();
+    }
+
+    this.totalNanos.reset();
+    this.maxNanos.reset();
+  }
+
+  private static int bucketOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+    return (
+      (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1))
+    );
+  }
+
+  private static long middleOf(int bucket) {
+    if (bucket < SUB_BUCKET_COUNT) {
+      return bucket;
+    }
+
+    int shift = bucket / SUB_BUCKET_COUNT - 1;
+    long lowest = (long) (SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT) << shift;
+
+    return lowest + ((1L << shift) >>> 1);
+  }
+}
@@ -0,0 +1,124 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Latency histogram and throughput counter of one operation,
+ * published as the MBean bookstore:type=Operation,name=<operation name>.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+  private static Map<String, OperationMetrics> allOperations = new ConcurrentHashMap<>();
+
+  private String name;
+  private LatencyHistogram latencies = new LatencyHistogram();
+  private volatile long startTime = System.nanoTime();
+
+  private OperationMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * This method retrieves the metrics of an operation, creating and publishing them on first use.
+   * The metrics are kept in a static field of the measured class, so this lookup only runs once per operation.
+   * If the MBean can't be registered the metrics are still recorded.
+   *
+   * @param name The name of the operation, like "Book.getBooks".
+   * @return The metrics of the operation.
+   */
+  public static OperationMetrics of(String name) {
+    return OperationMetrics.allOperations.computeIfAbsent(
+      name,
+      key -> {
+        OperationMetrics metrics = new OperationMetrics(key);
+        OperationMetrics.register("bookstore:type=Operation,name=" + key, metrics);
+
+        return metrics;
+      }
+    );
+  }
+
+  /**
+   * This method publishes an MBean in the platform MBean server, replacing any MBean with the same name.
+   * Failures are ignored, since the metrics are still recorded without JMX.
+   */
+  static void register(String objectName, Object mbean) {
+    try {
+      ObjectName name = new ObjectName(objectName);
+
+      if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+      }
+
+      ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+    } catch (JMException e) {
+      System.err.println("The MBean " + objectName + " could not be registered");
+    }
+  }
+
+  /**
+   * This method records one execution of the operation.
+   * It must be called in a finally block, so failed executions are measured too.
+   *
+   * @param startTime The value of System.nanoTime when the operation started.
+   */
+  public void record(long startTime) {
+    this.latencies.record(System.nanoTime() - startTime);
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public long getCount() {
+    return this.latencies.getCount();
+  }
+
+  /**
+   * This method retrieves the average throughput since the metrics were created or last reset.
+   */
+  @Override
+  public double getOperationsPerSecond() {
+    double elapsedSeconds = (System.nanoTime() - this.startTime) / 1_000_000_000.0;
+
+    return elapsedSeconds == 0 ? 0 : this.getCount() / elapsedSeconds;
+  }
+
+  @Override
+  public double getMeanMicros() {
+    long count = this.getCount();
+
+    return count == 0 ? 0 : this.latencies.getTotalNanos() / 1000.0 / count;
+  }
+
+  @Override
+  public double getP50Micros() {
+    return this.latencies.getPercentile(50) / 1000.0;
+  }
+
+  @Override
+  public double getP99Micros() {
+    return this.latencies.getPercentile(99) / 1000.0;
+  }
+
+  @Override
+  public double getP999Micros() {
+    return this.latencies.getPercentile(99.9) / 1000.0;
+  }
+
+  @Override
+  public double getMaxMicros() {
+    return this.latencies.getMaxNanos() / 1000.0;
+  }
+
+  @Override
+  public void reset() {
+    this.latencies.reset();
+    this.startTime = System.nanoTime();
+  }
+}
@@ -0,0 +1,22 @@
+package metrics;
+
+/**
+ * Management interface of OperationMetrics. Latencies are in microseconds.
+ */
+public interface OperationMetricsMBean {
+  long getCount();
+
+  double getOperationsPerSecond();
+
+  double getMeanMicros();
+
+  double getP50Micros();
+
+  double getP99Micros();
+
+  double getP999Micros();
+
+  double getMaxMicros();
+
+  void reset();
+}
@@ -0,0 +1,54 @@
+package models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * List that can only grow at its end, read by any number of threads while one thread appends to it.
+ *
+ * An element is stored before the size is increased, and the array is replaced by a larger copy
+ * before the element is stored, so a reader that sees a size also sees every element below it.
+ * Appends must be made by one thread at a time, and no element is ever changed or removed,
+ * so readers never lock and a reader that keeps a size keeps a consistent prefix of the list.
+ */
+class AppendOnlyList<E> extends AbstractList<E> implements RandomAccess {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private volatile Object[] elements = new Object[INITIAL_CAPACITY];
+  private volatile int size;
+
+  @Override
+  public boolean add(E element) {
+    Object[] elements = this.elements;
+
+    if (this.size == elements.length) {
+      elements = Arrays.copyOf(elements, elements.length * 2);
+      this.elements = elements;
+    }
+
+    elements[this.size] = element;
+    this.size++;
+
+    return true;
+  }
+
+  /**
+   * This method reads the size before the array, so the array read holds every element below that size.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    return (E) this.elements[index];
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+}
@@ -0,0 +1,136 @@
+package models;
+
+import enums.Genre;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Live set of the ids of the books with copies available, with the number of books
+ * and of available books of each genre.
+ *
+ * Books are added when they are registered and updated whenever their quantity crosses zero,
+ * so listing available books only visits available ids, skipping 64 unavailable books per word of the set,
+ * and the counters are read without visiting any book.
+ * The records of a mapped catalog file are added the first time the index is read,
+ * so opening the file still doesn't read its records.
+ */
+class AvailabilityIndex {
+
+  /**
+   * The most ids a caller should read with one call of nextAvailableIds,
+   * so a long listing doesn't keep the books it reaches from being updated in the meantime.
+   */
+  static final int MAX_IDS_PER_SCAN = 1024;
+
+  private BitSet availableIds = new BitSet();
+  private Map<Genre, GenreCounts> genreCounts = new EnumMap<>(Genre.class);
+  private CatalogSegment unreadSegment;
+
+  AvailabilityIndex() {
+    for (Genre genre : Genre.values()) {
+      this.genreCounts.put(genre, new GenreCounts());
+    }
+  }
+
+  /**
+   * This method defers adding the records of a read-only catalog segment until the index is first read.
+   * The quantities are read at that time, so the changes made before it don't need to be tracked.
+   */
+  synchronized void addLater(CatalogSegment segment) {
+    this.unreadSegment = segment;
+  }
+
+  /**
+   * This method adds a book that was just registered. It must be called after its id is assigned.
+   */
+  synchronized void add(Book book) {
+    this.add(book.getId(), book.getGenre(), book.getQuantityAvailable() > 0);
+  }
+
+  /**
+   * This method updates the availability of a book after its quantity crossed zero.
+   * The quantity is read again while holding this index's lock, so when a borrowing and a return
+   * flip the same book concurrently, the last update leaves the index matching the final quantity.
+   */
+  synchronized void update(Book book) {
+    if (this.unreadSegment != null && book.getId() < this.unreadSegment.size()) {
+      return;
+    }
+
+    boolean isAvailable = book.getQuantityAvailable() > 0;
+
+    if (this.availableIds.get(book.getId()) != isAvailable) {
+      this.availableIds.set(book.getId(), isAvailable);
+      this.genreCounts.get(book.getGenre()).availableBooks += isAvailable ? 1 : -1;
+    }
+  }
+
+  /**
+   * This method finds the first available books with ids from fromId up to toId,
+   * taking the lock once for the whole range instead of once per id.
+   *
+   * @param toId The id after the last book that can be found, the size of the catalog being listed.
+   * @param ids The array filled with the ids found, in increasing order.
+   * @return The number of ids found, less than the array's length if the range has no more available books.
+   */
+  synchronized int nextAvailableIds(int fromId, int toId, int[] ids) {
+    this.readUnreadSegment();
+
+    int count = 0;
+
+    for (
+      int id = this.availableIds.nextSetBit(fromId);
+      id >= 0 && id < toId && count < ids.length;
+      id = this.availableIds.nextSetBit(id + 1)
+    ) {
+      ids[count++] = id;
+    }
+
+    return count;
+  }
+
+  synchronized int countBooks(Genre genre) {
+    this.readUnreadSegment();
+
+    return this.genreCounts.get(genre).books;
+  }
+
+  synchronized int countAvailableBooks(Genre genre) {
+    this.readUnreadSegment();
+
+    return this.genreCounts.get(genre).availableBooks;
+  }
+
+  private void add(int id, Genre genre, boolean isAvailable) {
+    GenreCounts counts = this.genreCounts.get(genre);
+    counts.books++;
+
+    if (isAvailable) {
+      this.availableIds.set(id);
+      counts.availableBooks++;
+    }
+  }
+
+  private void readUnreadSegment() {
+    if (this.unreadSegment == null) {
+      return;
+    }
+
+    for (int record = 0; record < this.unreadSegment.size(); record++) {
+      this.add(
+          record,
+          this.unreadSegment.getGenre(record),
+          this.unreadSegment.getQuantityAvailable(record) > 0
+        );
+    }
+
+    this.unreadSegment = null;
+  }
+
+  private static class GenreCounts {
+
+    private int books;
+    private int availableBooks;
+  }
+}
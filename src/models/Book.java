@@ -2,9 +2,20 @@ package models;
 
 import enums.Genre;
 import exceptions.EntityNotFoundException;
-import java.text.MessageFormat;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import metrics.AvailableBooksEvent;
+import metrics.BookSearchEvent;
+import metrics.OperationMetrics;
 
 public class Book {
 
@@ -12,9 +23,45 @@ public class Book {
   private String isbn;
   private String title;
   private String author;
-  private int quantityAvailable;
+  private AtomicIntegerArray quantities;
+  private int quantityIndex;
+  private int id;
+  private String searchableTitle;
+  private String searchableAuthor;
+  private String searchableIsbn;
+  private String searchableGenre;
 
-  private static List<Book> allBooks = new ArrayList<>();
+  private static List<Book> allBooks = new AppendOnlyList<>();
+  private static BookSearchIndex searchIndex = new BookSearchIndex();
+  private static Map<String, Book> booksByIsbn = new ConcurrentHashMap<>();
+  private static Lock catalogWriteLock = new ReentrantLock();
+  private static volatile CatalogSnapshot catalog = new CatalogSnapshot(0, 0);
+  private static CatalogSegment baseCatalog;
+  private static SearchCache searchCache = new SearchCache();
+  private static AvailabilityIndex availabilityIndex = new AvailabilityIndex();
+  private static FuzzyIndex fuzzyIndex = new FuzzyIndex();
+  private static CompletionIndex completionIndex = new CompletionIndex();
+  private static OperationMetrics registerMetrics = OperationMetrics.of(
+    "Book.register"
+  );
+  private static OperationMetrics getBooksMetrics = OperationMetrics.of(
+    "Book.getBooks"
+  );
+  private static OperationMetrics getByIsbnMetrics = OperationMetrics.of(
+    "Book.getByIsbn"
+  );
+  private static OperationMetrics getAvailableBooksMetrics = OperationMetrics.of(
+    "Book.getAvailableBooks"
+  );
+  private static OperationMetrics getRankedBooksMetrics = OperationMetrics.of(
+    "Book.getRankedBooks"
+  );
+  private static OperationMetrics getCompletionsMetrics = OperationMetrics.of(
+    "Book.getCompletions"
+  );
+  private static OperationMetrics getSimilarBooksMetrics = OperationMetrics.of(
+    "Book.getSimilarBooks"
+  );
 
   public Book(
     Genre genre,
@@ -22,20 +69,302 @@ public class Book {
     String title,
     String author,
     int quantityAvailable
+  ) {
+    this(genre, isbn, title, author, quantityAvailable, true);
+  }
+
+  private Book(
+    Genre genre,
+    String isbn,
+    String title,
+    String author,
+    int quantityAvailable,
+    boolean register
+  ) {
+    this(
+      genre,
+      isbn,
+      title,
+      author,
+      new AtomicIntegerArray(new int[] { quantityAvailable }),
+      0
+    );
+
+    if (register) {
+      Book.register(List.of(this));
+    }
+  }
+
+  /**
+   * This constructor creates a book whose quantity is kept in a slot of an array,
+   * which is its own array of one slot, or a column of a catalog segment.
+   */
+  private Book(
+    Genre genre,
+    String isbn,
+    String title,
+    String author,
+    AtomicIntegerArray quantities,
+    int quantityIndex
   ) {
     this.genre = genre;
     this.isbn = isbn;
     this.title = title;
     this.author = author;
-    this.quantityAvailable = quantityAvailable;
+    this.quantities = quantities;
+    this.quantityIndex = quantityIndex;
+    this.searchableTitle = title.toLowerCase();
+    this.searchableAuthor = author.toLowerCase();
+    this.searchableIsbn = isbn.toLowerCase();
+    this.searchableGenre = genre.toString().toLowerCase();
+  }
+
+  /**
+   * This method creates a book without adding it to the catalog,
+   * so it can be registered later together with other books through registerAll.
+   */
+  static Book createUnregistered(
+    Genre genre,
+    String isbn,
+    String title,
+    String author,
+    int quantityAvailable
+  ) {
+    return new Book(genre, isbn, title, author, quantityAvailable, false);
+  }
+
+  /**
+   * This method creates the book of a catalog segment record, whose id is the record number.
+   */
+  static Book createForRecord(
+    int id,
+    Genre genre,
+    String isbn,
+    String title,
+    String author,
+    int quantityAvailable
+  ) {
+    Book book = new Book(genre, isbn, title, author, quantityAvailable, false);
+    book.id = id;
+
+    return book;
+  }
+
+  /**
+   * This method creates a view of a catalog segment record, whose quantity is read and changed
+   * in the segment's quantity column, so every view of the record shares the same stock.
+   */
+  static Book createForColumn(
+    int id,
+    Genre genre,
+    String isbn,
+    String title,
+    String author,
+    AtomicIntegerArray quantities,
+    int quantityIndex
+  ) {
+    Book book = new Book(genre, isbn, title, author, quantities, quantityIndex);
+    book.id = id;
+
+    return book;
+  }
+
+  /**
+   * This method moves the quantity of the book into a slot of a catalog segment's quantity column,
+   * which holds it from then on. It is only used while the book is registered, before other threads can see it.
+   */
+  void moveQuantityTo(AtomicIntegerArray quantities, int quantityIndex) {
+    quantities.set(quantityIndex, this.getQuantityAvailable());
+    this.quantities = quantities;
+    this.quantityIndex = quantityIndex;
+  }
+
+  /**
+   * This method opens a binary catalog file as the base of the catalog.
+   * The file is memory-mapped and its books are read lazily, so opening it takes the same time for any catalog size.
+   * The books of the file get the first ids and the books created afterwards follow them.
+   *
+   * @param path the path of the catalog file.
+   * @throws IOException if the file can't be mapped or has an unknown format.
+   */
+  public static void openCatalog(Path path) throws IOException {
+    Book.useBaseCatalog(MappedCatalog.open(path));
+  }
+
+  /**
+   * This method stores the books created from now on in columns instead of one object per book:
+   * ISBN-13s as longs, genres as bytes, authors in a dictionary and quantities in int arrays.
+   * No Book object is kept: the books returned by queries are views that share the stock kept in the columns.
+   * Books read from the columnar storage show their ISBN normalized.
+   */
+  public static void useColumnarStorage() {
+    Book.useBaseCatalog(new ColumnarCatalog());
+  }
+
+  private static void useBaseCatalog(CatalogSegment catalog) {
+    Book.catalogWriteLock.lock();
+
+    try {
+      if (Book.baseCatalog != null || Book.catalog.size > 0) {
+        throw new IllegalStateException(
+          "The catalog storage must be chosen before any book is created"
+        );
+      }
+
+      Book.baseCatalog = catalog;
+
+      if (!catalog.isAppendable()) {
+        Book.availabilityIndex.addLater(catalog);
+        Book.fuzzyIndex.addLater(catalog);
+        Book.completionIndex.addLater(catalog);
+      }
+
+      Book.catalog = new CatalogSnapshot(catalog.size(), catalog.size());
+    } finally {
+      Book.catalogWriteLock.unlock();
+    }
+  }
+
+  /**
+   * This method writes the whole catalog, with the current quantities, to a binary catalog file
+   * that can later be opened with openCatalog.
+   *
+   * @param path the path of the catalog file.
+   * @throws IOException if the file can't be written.
+   */
+  public static void writeCatalog(Path path) throws IOException {
+    CatalogSnapshot catalog = Book.catalog;
+    List<Book> books = new ArrayList<>();
+
+    for (int id = 0; id < catalog.baseCatalogSize; id++) {
+      books.add(Book.baseCatalog.readBook(id));
+    }
+
+    books.addAll(catalog.getObjectBooks());
+
+    MappedCatalog.write(path, books);
+  }
+
+  /**
+   * This method adds a batch of books to the catalog and to its indexes
+   * while holding the catalog's write lock only once for the whole batch.
+   * The books become visible to readers together, when the batch is published.
+   *
+   * @param books the books being registered, in creation order.
+   */
+  static void registerAll(List<Book> books) {
+    Book.register(books);
+  }
+
+  /**
+   * This method registers books in the catalog.
+   * Writers hold the catalog's write lock, while readers never lock: the books are appended
+   * to lists that only grow, and a new snapshot holding the new catalog size is published once the
+   * whole batch is appended. Publishing only creates that snapshot, so its cost doesn't grow with the catalog.
+   */
+  private static void register(List<Book> books) {
+    long startTime = System.nanoTime();
+
+    try {
+      CompletableFuture<Void> lastLogged = CompletableFuture.completedFuture(null);
+      Journal journal = Journal.beginChange();
+
+      Book.catalogWriteLock.lock();
+
+      try {
+        int baseCatalogSize = Book.catalog.baseCatalogSize;
+
+        for (Book book : books) {
+          if (Book.baseCatalog != null && Book.baseCatalog.isAppendable()) {
+            book.id = Book.baseCatalog.append(book);
+            baseCatalogSize = book.id + 1;
+          } else {
+            book.id = baseCatalogSize + Book.allBooks.size();
+            Book.allBooks.add(book);
+            Book.searchIndex.add(book);
+            Book.booksByIsbn.putIfAbsent(Book.normalizeIsbn(book.isbn), book);
+          }
+
+          Book.availabilityIndex.add(book);
+          Book.fuzzyIndex.add(book);
+          Book.completionIndex.add(book);
+
+          // Logged while holding the lock so the journal keeps the books in id order
+          lastLogged = Journal.logBookCreated(book);
+        }
+
+        Book.catalog =
+          new CatalogSnapshot(
+            baseCatalogSize,
+            baseCatalogSize + Book.allBooks.size()
+          );
+        Book.searchCache.invalidateCatalog();
+      } finally {
+        Book.catalogWriteLock.unlock();
+        Journal.endChange(journal);
+      }
+
+      lastLogged.join();
+    } finally {
+      Book.registerMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This method retrieves a copy of the books created in this process, in creation order,
+   * with the ones kept in columnar storage read into new Book objects.
+   * The books of a mapped catalog file are not included.
+   */
+  static List<Book> getCreatedBooks() {
+    CatalogSnapshot catalog = Book.catalog;
+    List<Book> books = new ArrayList<>();
+
+    if (Book.baseCatalog != null && Book.baseCatalog.isAppendable()) {
+      for (int id = 0; id < catalog.baseCatalogSize; id++) {
+        books.add(Book.baseCatalog.readBook(id));
+      }
+    }
+
+    books.addAll(catalog.getObjectBooks());
 
-    Book.allBooks.add(this);
+    return books;
+  }
+
+  /**
+   * This method retrieves the books of the mapped catalog file that were read so far.
+   * Only these books can have a quantity different from the one in the file.
+   */
+  static List<Book> getMaterializedCatalogBooks() {
+    return Book.baseCatalog == null || Book.baseCatalog.isAppendable()
+      ? List.of()
+      : Book.baseCatalog.getMaterializedBooks();
+  }
+
+  static int getCatalogSize() {
+    return Book.catalog.size;
+  }
+
+  /**
+   * This method retrieves a book by its id.
+   *
+   * @return the book with the given id, or null if there is none.
+   */
+  static Book getById(int id) {
+    CatalogSnapshot catalog = Book.catalog;
+
+    return id >= 0 && id < catalog.size
+      ? Book.getCatalogBook(id, catalog.baseCatalogSize)
+      : null;
   }
 
   /**
    * This method retrieves a list of books that match the given search term.
    * The search term can be part of the author's name, book title, or genre.
    * The search is case-insensitive.
+   * Search terms with at least three characters are resolved through the trigram index,
+   * shorter ones are matched against every book.
+   * The books of a mapped catalog file are matched directly against the mapped bytes,
+   * and the books in columnar storage against their columns.
    *
    * @param searchTerm the term to search for in the books.
    * @return a list of books that match the search term.
@@ -43,25 +372,403 @@ public class Book {
    */
   public static List<Book> getBooks(String searchTerm)
     throws EntityNotFoundException {
-    String lowerCasedSearchTerm = searchTerm.toLowerCase();
-
-    List<Book> foundBooks = Book.allBooks
-      .stream()
-      .filter(book ->
-        book.author.toLowerCase().contains(lowerCasedSearchTerm) ||
-        book.isbn.toLowerCase().equals(lowerCasedSearchTerm) ||
-        book.title.toLowerCase().contains(lowerCasedSearchTerm) ||
-        book.genre.toString().toLowerCase().contains(lowerCasedSearchTerm)
-      )
-      .toList();
-
-    if (foundBooks.isEmpty()) {
-      throw new EntityNotFoundException(
-        "\nNo book with the provided data was found"
+    return Book.getBooks(searchTerm, Integer.MAX_VALUE, null).getBooks();
+  }
+
+  /**
+   * This method retrieves one page of the books that match the given search term, in id order.
+   * The search stops at the last book of the page, so the books after it are neither matched nor
+   * kept until the next page is requested with the continuation token of this one.
+   * Each page reflects the catalog at the time it is requested.
+   * Pages are cached until books are registered, and the returned book list can't be modified.
+   *
+   * @param searchTerm the term to search for in the books.
+   * @param pageSize the maximum number of books in the page.
+   * @param continuationToken the token of the previous page, or null for the first page.
+   * @return the page of books that match the search term.
+   * @throws EntityNotFoundException if the first page is requested and no book with the provided data is found.
+   * @throws IllegalArgumentException if the page size is not positive or the token is invalid.
+   */
+  public static BookPage getBooks(
+    String searchTerm,
+    int pageSize,
+    String continuationToken
+  ) throws EntityNotFoundException {
+    int firstId = BookPage.toFirstId(continuationToken);
+
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("The page size must be positive");
+    }
+
+    long startTime = System.nanoTime();
+    BookSearchEvent event = new BookSearchEvent();
+    event.begin();
+
+    try {
+      String lowerCasedSearchTerm = searchTerm.toLowerCase();
+
+      if (event.isEnabled()) {
+        event.termLength = searchTerm.length();
+        event.lowerCasingTime = System.nanoTime() - startTime;
+      }
+
+      String cacheKey = SearchCache.searchKey(lowerCasedSearchTerm, firstId, pageSize);
+      BookPage page = Book.searchCache.get(
+        cacheKey,
+        Book.searchCache.getSearchVersion()
+      );
+
+      if (page != null) {
+        event.cacheHit = true;
+      } else {
+        // The version is read before the snapshot, so a page of an older catalog is never stored as current
+        long version = Book.searchCache.getSearchVersion();
+        CatalogSnapshot catalog = Book.catalog;
+        List<Book> foundBooks = new ArrayList<>();
+        int nextId = Book.searchFrom(
+          catalog,
+          lowerCasedSearchTerm,
+          firstId,
+          pageSize,
+          foundBooks
+        );
+
+        page = new BookPage(Collections.unmodifiableList(foundBooks), nextId);
+        Book.searchCache.put(cacheKey, version, page);
+
+        if (event.isEnabled()) {
+          event.candidateCount =
+            Book.countCandidates(
+              catalog,
+              lowerCasedSearchTerm,
+              firstId,
+              nextId == BookPage.lastPage() ? catalog.size : nextId
+            );
+        }
+      }
+
+      event.resultCount = page.getBooks().size();
+
+      if (page.getBooks().isEmpty() && continuationToken == null) {
+        throw new EntityNotFoundException(
+          "\nNo book with the provided data was found"
+        );
+      }
+
+      return page;
+    } finally {
+      event.commit();
+      Book.getBooksMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This method retrieves one page of the books that match the given search term, from the most to the least relevant.
+   * Books matching the ISBN exactly come first, followed by the ones whose title starts with the term,
+   * the ones whose title contains it, the ones whose author contains it and the ones whose genre contains it.
+   * Within each group, books where the term covers more of the matched field come first.
+   * The matches are ranked as the search finds them and only the best ones up to the end of the page are kept,
+   * so the whole match set is never kept nor sorted.
+   *
+   * @param searchTerm the term to search for in the books.
+   * @param pageSize the maximum number of books in the page.
+   * @param continuationToken the token of the previous page, or null for the first page.
+   * @return the page of books that match the search term.
+   * @throws EntityNotFoundException if the first page is requested and no book with the provided data is found.
+   * @throws IllegalArgumentException if the page size is not positive or the token is invalid.
+   */
+  public static BookPage getRankedBooks(
+    String searchTerm,
+    int pageSize,
+    String continuationToken
+  ) throws EntityNotFoundException {
+    int firstRank = BookPage.toFirstId(continuationToken);
+
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("The page size must be positive");
+    }
+
+    long startTime = System.nanoTime();
+
+    try {
+      String lowerCasedSearchTerm = searchTerm.toLowerCase();
+      String cacheKey = SearchCache.rankedSearchKey(
+        lowerCasedSearchTerm,
+        firstRank,
+        pageSize
       );
+      long version = Book.searchCache.getSearchVersion();
+      BookPage page = Book.searchCache.get(cacheKey, version);
+
+      if (page == null) {
+        CatalogSnapshot catalog = Book.catalog;
+        int lastRank = (int) Math.min((long) firstRank + pageSize, Integer.MAX_VALUE);
+        RankedSearch rankedSearch = new RankedSearch(lowerCasedSearchTerm, lastRank);
+
+        Book.searchFrom(
+          catalog,
+          lowerCasedSearchTerm,
+          0,
+          Integer.MAX_VALUE,
+          rankedSearch.asMatchList()
+        );
+
+        List<Book> rankedBooks = rankedSearch.getBooks();
+
+        page =
+          new BookPage(
+            List.copyOf(
+              rankedBooks.subList(Math.min(firstRank, rankedBooks.size()), rankedBooks.size())
+            ),
+            rankedSearch.getMatchCount() > lastRank ? lastRank : BookPage.lastPage()
+          );
+        Book.searchCache.put(cacheKey, version, page);
+      }
+
+      if (page.getBooks().isEmpty() && continuationToken == null) {
+        throw new EntityNotFoundException(
+          "\nNo book with the provided data was found"
+        );
+      }
+
+      return page;
+    } finally {
+      Book.getRankedBooksMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This method adds to foundBooks the books matching a lowercased search term, in id order starting at fromId,
+   * and stops once maxResults books were added.
+   * The records of the base catalog come first, followed by the books kept as objects.
+   * Only the books of the given snapshot are searched.
+   *
+   * @return the id the search continues from, or BookPage.lastPage() if every book was searched.
+   */
+  private static int searchFrom(
+    CatalogSnapshot catalog,
+    String lowerCasedSearchTerm,
+    int fromId,
+    int maxResults,
+    List<Book> foundBooks
+  ) {
+    int baseCatalogSize = catalog.baseCatalogSize;
+    int catalogSize = catalog.size;
+    int firstResult = foundBooks.size();
+    int nextId = fromId;
+
+    if (nextId < baseCatalogSize) {
+      nextId =
+        Book.baseCatalog.search(
+          lowerCasedSearchTerm,
+          Book.matchGenres(lowerCasedSearchTerm),
+          nextId,
+          baseCatalogSize,
+          maxResults,
+          foundBooks
+        );
+    }
+
+    int remainingResults = maxResults - (foundBooks.size() - firstResult);
+
+    if (remainingResults > 0 && nextId < catalogSize) {
+      if (lowerCasedSearchTerm.length() >= BookSearchIndex.GRAM_LENGTH) {
+        nextId =
+          Book.searchIndex.search(
+            lowerCasedSearchTerm,
+            nextId,
+            catalogSize,
+            remainingResults,
+            foundBooks
+          );
+      } else {
+        int index = nextId - baseCatalogSize;
+        nextId = catalogSize;
+
+        for (; index < catalogSize - baseCatalogSize; index++) {
+          Book book = Book.allBooks.get(index);
+
+          if (book.matches(lowerCasedSearchTerm)) {
+            foundBooks.add(book);
+
+            if (--remainingResults == 0) {
+              nextId = book.id + 1;
+              break;
+            }
+          }
+        }
+      }
     }
 
-    return foundBooks;
+    return nextId < 0 || nextId >= catalogSize ? BookPage.lastPage() : nextId;
+  }
+
+  /**
+   * This method counts the books that searchFrom compared with a lowercased search term
+   * to search the ids from fromId up to toId, where the search stopped.
+   * Every record of the base catalog is compared, and the books kept as objects
+   * are compared through the trigram index or a scan.
+   */
+  private static int countCandidates(
+    CatalogSnapshot catalog,
+    String lowerCasedSearchTerm,
+    int fromId,
+    int toId
+  ) {
+    int baseCatalogSize = catalog.baseCatalogSize;
+    int candidateCount = Math.max(0, Math.min(toId, baseCatalogSize) - fromId);
+    int firstObjectId = Math.max(fromId, baseCatalogSize);
+
+    if (firstObjectId >= toId) {
+      return candidateCount;
+    }
+
+    return candidateCount + (
+      lowerCasedSearchTerm.length() >= BookSearchIndex.GRAM_LENGTH
+        ? Book.searchIndex.countCandidates(lowerCasedSearchTerm, firstObjectId, toId)
+        : toId - firstObjectId
+    );
+  }
+
+  /**
+   * This method retrieves the books whose title or author is closest to a search term,
+   * tolerating typos like "tolkein" for "tolkien". It is meant for terms that getBooks found no book for.
+   * Every word of the term must be close to a word of the book's title or author,
+   * and the books needing the fewest edits come first.
+   *
+   * @param searchTerm the term to search for in the books.
+   * @param maxResults the maximum number of books returned.
+   * @return the closest books.
+   * @throws EntityNotFoundException if no book is close to the search term.
+   */
+  public static List<Book> getSimilarBooks(String searchTerm, int maxResults)
+    throws EntityNotFoundException {
+    long startTime = System.nanoTime();
+
+    try {
+      CatalogSnapshot catalog = Book.catalog;
+      List<Book> similarBooks = new ArrayList<>();
+
+      for (int id : Book.fuzzyIndex.search(searchTerm.toLowerCase(), catalog.size, maxResults)) {
+        similarBooks.add(Book.getCatalogBook(id, catalog.baseCatalogSize));
+      }
+
+      if (similarBooks.isEmpty()) {
+        throw new EntityNotFoundException(
+          "\nNo book similar to the provided data was found"
+        );
+      }
+
+      return similarBooks;
+    } finally {
+      Book.getSimilarBooksMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This method retrieves the titles and authors starting with what the user typed so far, ignoring case,
+   * in alphabetical order. Each title or author is returned once, however many books share it.
+   *
+   * @param prefix the text typed so far.
+   * @param maxResults the maximum number of completions.
+   * @return the completions, or an empty list if no title or author starts with the prefix.
+   */
+  public static List<String> getCompletions(String prefix, int maxResults) {
+    long startTime = System.nanoTime();
+
+    try {
+      return Book.completionIndex.complete(
+        prefix.toLowerCase(),
+        Book.catalog.size,
+        maxResults
+      );
+    } finally {
+      Book.getCompletionsMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This method retrieves the book with the given ISBN.
+   * Hyphens, spaces and the case of a trailing "x" check digit are ignored.
+   *
+   * @param isbn the ISBN of the book.
+   * @return the first book created with the given ISBN.
+   * @throws EntityNotFoundException if no book with the provided ISBN is found.
+   */
+  public static Book getByIsbn(String isbn) throws EntityNotFoundException {
+    long startTime = System.nanoTime();
+
+    try {
+      String normalizedIsbn = Book.normalizeIsbn(isbn);
+      CatalogSnapshot catalog = Book.catalog;
+      int baseCatalogRecord = Book.baseCatalog == null
+        ? -1
+        : Book.baseCatalog.findByIsbn(normalizedIsbn);
+      Book foundBook = null;
+
+      // Books still being registered are found by the lookups but are not part of the snapshot
+      if (baseCatalogRecord >= 0) {
+        if (baseCatalogRecord < catalog.baseCatalogSize) {
+          foundBook = Book.baseCatalog.getBook(baseCatalogRecord);
+        }
+      } else {
+        foundBook = Book.booksByIsbn.get(normalizedIsbn);
+
+        if (foundBook != null && foundBook.id >= catalog.size) {
+          foundBook = null;
+        }
+      }
+
+      if (foundBook == null) {
+        throw new EntityNotFoundException(
+          "\nNo book with the ISBN " + isbn + " was found"
+        );
+      }
+
+      return foundBook;
+    } finally {
+      Book.getByIsbnMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This method normalizes an ISBN by removing hyphens and spaces and upper casing it.
+   * ISBNs that are already normalized, with no separators and no lowercase letters,
+   * are returned as they are, without allocating a new string.
+   *
+   * @param isbn the ISBN to normalize.
+   * @return the normalized ISBN.
+   */
+  static String normalizeIsbn(String isbn) {
+    for (int i = 0; i < isbn.length(); i++) {
+      char character = isbn.charAt(i);
+
+      if (
+        character == '-' ||
+        character == ' ' ||
+        Character.toUpperCase(character) != character
+      ) {
+        return isbn.replace("-", "").replace(" ", "").toUpperCase();
+      }
+    }
+
+    return isbn;
+  }
+
+  /**
+   * This method checks if the book matches a lowercased search term.
+   * The term must be part of the author's name, book title or genre, or be equal to the ISBN.
+   *
+   * @param lowerCasedSearchTerm the lowercased term to search for.
+   * @return true if the book matches the search term, false otherwise.
+   */
+  boolean matches(String lowerCasedSearchTerm) {
+    return (
+      this.searchableAuthor.contains(lowerCasedSearchTerm) ||
+      this.searchableIsbn.equals(lowerCasedSearchTerm) ||
+      this.searchableTitle.contains(lowerCasedSearchTerm) ||
+      this.searchableGenre.contains(lowerCasedSearchTerm)
+    );
   }
 
   /**
@@ -71,28 +778,193 @@ public class Book {
    * @return a list of available books.
    */
   public static List<Book> getAvailableBooks() {
-    return Book.allBooks
-      .stream()
-      .filter(book -> book.quantityAvailable > 0)
-      .toList();
+    return Book.getAvailableBooks(Integer.MAX_VALUE, null).getBooks();
+  }
+
+  /**
+   * This method retrieves one page of the available books, in id order.
+   * The books are read from the set of available ids, so unavailable books are skipped without being read.
+   * Pages are cached until books are registered or a book runs out of copies or gets one back,
+   * and the returned book list can't be modified.
+   *
+   * @param pageSize the maximum number of books in the page.
+   * @param continuationToken the token of the previous page, or null for the first page.
+   * @return the page of available books.
+   * @throws IllegalArgumentException if the page size is not positive or the token is invalid.
+   */
+  public static BookPage getAvailableBooks(
+    int pageSize,
+    String continuationToken
+  ) {
+    int firstId = BookPage.toFirstId(continuationToken);
+
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("The page size must be positive");
+    }
+
+    long startTime = System.nanoTime();
+    AvailableBooksEvent event = new AvailableBooksEvent();
+    event.begin();
+
+    try {
+      String cacheKey = SearchCache.availableBooksKey(firstId, pageSize);
+      BookPage page = Book.searchCache.get(
+        cacheKey,
+        Book.searchCache.getAvailabilityVersion()
+      );
+
+      if (page != null) {
+        event.cacheHit = true;
+        event.resultCount = page.getBooks().size();
+
+        return page;
+      }
+
+      long version = Book.searchCache.getAvailabilityVersion();
+      CatalogSnapshot catalog = Book.catalog;
+      List<Book> availableBooks = new ArrayList<>();
+      int nextId = BookPage.lastPage();
+
+      // One id more than the page holds is read, to know where the next page starts
+      int[] ids = new int[Math.min(pageSize, AvailabilityIndex.MAX_IDS_PER_SCAN - 1) + 1];
+      int idCount = Book.availabilityIndex.nextAvailableIds(firstId, catalog.size, ids);
+      int position = 0;
+
+      while (position < idCount) {
+        if (availableBooks.size() == pageSize) {
+          nextId = ids[position];
+          break;
+        }
+
+        availableBooks.add(
+          Book.getCatalogBook(ids[position], catalog.baseCatalogSize)
+        );
+        position++;
+
+        if (position == ids.length) {
+          idCount = Book.availabilityIndex.nextAvailableIds(
+            ids[position - 1] + 1,
+            catalog.size,
+            ids
+          );
+          position = 0;
+        }
+      }
+
+      page = new BookPage(Collections.unmodifiableList(availableBooks), nextId);
+      Book.searchCache.put(cacheKey, version, page);
+
+      event.candidateCount = availableBooks.size();
+      event.resultCount = availableBooks.size();
+
+      return page;
+    } finally {
+      event.commit();
+      Book.getAvailableBooksMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This method counts the books of a genre, available or not, without reading them.
+   */
+  public static int countBooks(Genre genre) {
+    return Book.availabilityIndex.countBooks(genre);
+  }
+
+  /**
+   * This method counts the books of a genre with at least one copy available, without reading them.
+   */
+  public static int countAvailableBooks(Genre genre) {
+    return Book.availabilityIndex.countAvailableBooks(genre);
+  }
+
+  /**
+   * This method retrieves a book of a catalog snapshot by its id.
+   */
+  private static Book getCatalogBook(int id, int baseCatalogSize) {
+    return id < baseCatalogSize
+      ? Book.baseCatalog.getBook(id)
+      : Book.allBooks.get(id - baseCatalogSize);
+  }
+
+  /**
+   * This method marks the genres whose name contains a lowercased search term.
+   *
+   * @return an array indexed by the ordinal of the genres.
+   */
+  private static boolean[] matchGenres(String lowerCasedSearchTerm) {
+    Genre[] genres = Genre.values();
+    boolean[] matchedGenres = new boolean[genres.length];
+
+    for (Genre genre : genres) {
+      matchedGenres[genre.ordinal()] =
+        genre.toString().toLowerCase().contains(lowerCasedSearchTerm);
+    }
+
+    return matchedGenres;
+  }
+
+  /**
+   * This method takes one copy of the book out of the stock.
+   * The check and the decrement are a single compare-and-set on this book's quantity,
+   * so concurrent borrowers can never take more copies than there are.
+   *
+   * @return true if a copy was reserved, false if no copy was available.
+   */
+  boolean reserveCopy() {
+    while (true) {
+      int quantity = this.quantities.get(this.quantityIndex);
+
+      if (quantity <= 0) {
+        return false;
+      }
+
+      if (this.quantities.compareAndSet(this.quantityIndex, quantity, quantity - 1)) {
+        if (quantity == 1) {
+          this.availabilityChanged();
+        }
+
+        return true;
+      }
+    }
+  }
+
+  /**
+   * This method puts one copy of the book back into the stock.
+   * Returned copies only reach it through the waitlist, once nobody is waiting for them.
+   */
+  void releaseCopy() {
+    if (this.quantities.incrementAndGet(this.quantityIndex) == 1) {
+      this.availabilityChanged();
+    }
+  }
+
+  /**
+   * This method takes one copy of the book out of the stock even if none is available.
+   * It is only used to replay borrowings that were already accepted.
+   */
+  void takeCopy() {
+    if (this.quantities.decrementAndGet(this.quantityIndex) == 0) {
+      this.availabilityChanged();
+    }
+  }
+
+  /**
+   * This method updates the availability index after the quantity crossed zero,
+   * and only then makes the cached pages of available books stale,
+   * so a page computed after the invalidation already reads the updated index.
+   */
+  private void availabilityChanged() {
+    Book.availabilityIndex.update(this);
+    Book.searchCache.invalidateAvailability();
   }
 
   /**
    * This method displays information about a book in a formatted manner.
+   * Lists of books should be displayed with ConsoleRenderer.renderBooks, which flushes the console once for the whole list.
    */
   public void displayInfo() {
-    System.out.println("----------------------------------------------------");
-    System.out.println(
-      MessageFormat.format(
-        "Título: {0}\nAutor: {1}\nISBN: {2}\nGênero: {3}\nQuantidade disponível: {4}\n",
-        this.title,
-        this.author,
-        this.isbn,
-        this.genre.toString(),
-        this.quantityAvailable
-      )
-    );
-    System.out.println("----------------------------------------------------");
+    ConsoleRenderer.renderBook(this);
   }
 
   public String getTitle() {
@@ -103,11 +975,135 @@ public class Book {
     return this.isbn;
   }
 
+  public String getAuthor() {
+    return this.author;
+  }
+
+  public Genre getGenre() {
+    return this.genre;
+  }
+
+  int getId() {
+    return this.id;
+  }
+
+  String getSearchableTitle() {
+    return this.searchableTitle;
+  }
+
+  String getSearchableAuthor() {
+    return this.searchableAuthor;
+  }
+
+  String getSearchableIsbn() {
+    return this.searchableIsbn;
+  }
+
   public int getQuantityAvailable() {
-    return this.quantityAvailable;
+    return this.quantities.get(this.quantityIndex);
   }
 
+  /**
+   * This method replaces the quantity available of the book.
+   * The change is logged as the number of copies added or removed,
+   * so replaying it keeps the copies taken by borrowings logged around it.
+   * Added copies go through the waitlist one at a time, so the users waiting for the book
+   * get them before they reach the stock, and the quantity is then lower by the copies they took.
+   */
   public void setQuantityAvailable(int quantityAvailable) {
-    this.quantityAvailable = quantityAvailable;
+    CompletableFuture<Void> logged;
+    Journal journal = Journal.beginChange();
+
+    try {
+      while (true) {
+        int previousQuantity = this.quantities.get(this.quantityIndex);
+        int addedCopies = quantityAvailable - previousQuantity;
+
+        if (addedCopies > 0) {
+          // Logged before the borrowings of the copies handed over, which replay takes from the added copies
+          logged = Journal.logQuantityAdded(this, addedCopies);
+          BookBorrowing.handOverAddedCopies(this, addedCopies);
+          break;
+        }
+
+        if (
+          this.quantities.compareAndSet(
+            this.quantityIndex,
+            previousQuantity,
+            quantityAvailable
+          )
+        ) {
+          if (previousQuantity > 0 && quantityAvailable <= 0) {
+            this.availabilityChanged();
+          }
+
+          logged = Journal.logQuantityAdded(this, addedCopies);
+          break;
+        }
+      }
+    } finally {
+      Journal.endChange(journal);
+    }
+
+    logged.join();
+  }
+
+  /**
+   * This method adds copies to the stock, or removes them with a negative number.
+   * It is only used to replay changes of the quantity that were already accepted,
+   * and by the waitlist to add copies nobody is waiting for.
+   */
+  void addCopies(int addedCopies) {
+    int quantity = this.quantities.addAndGet(this.quantityIndex, addedCopies);
+
+    if ((quantity - addedCopies > 0) != (quantity > 0)) {
+      this.availabilityChanged();
+    }
+  }
+
+  /**
+   * This method checks if two Book objects are the same book, which is the case when they share their stock.
+   * A book of the columnar storage can be read into several Book objects that are all equal,
+   * while every other book is only equal to itself.
+   */
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof Book)) {
+      return false;
+    }
+
+    Book book = (Book) other;
+
+    return (
+      book.quantities == this.quantities && book.quantityIndex == this.quantityIndex
+    );
+  }
+
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(this.quantities) * 31 + this.quantityIndex;
+  }
+
+  /**
+   * The sizes of the catalog visible to readers, replaced by the writer after every registration.
+   * The catalog's lists and segments are only appended to, so the books below these sizes never change
+   * and a reader holding a snapshot sees the same catalog until it is done.
+   */
+  private static class CatalogSnapshot {
+
+    private int baseCatalogSize;
+    private int size;
+
+    private CatalogSnapshot(int baseCatalogSize, int size) {
+      this.baseCatalogSize = baseCatalogSize;
+      this.size = size;
+    }
+
+    /**
+     * This method retrieves the books of the snapshot that are kept as objects, after the base catalog records.
+     */
+    private List<Book> getObjectBooks() {
+      return Book.allBooks.subList(0, this.size - this.baseCatalogSize);
+    }
   }
 }
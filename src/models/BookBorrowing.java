@@ -1,40 +1,348 @@
 package models;
 
+import exceptions.BookAlreadyBorrowedException;
 import exceptions.EntityNotFoundException;
 import exceptions.LateBorrowingsException;
 import java.text.MessageFormat;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import metrics.BookBorrowingEvent;
+import metrics.BookReturnEvent;
+import metrics.LateBorrowingsCheckEvent;
+import metrics.OperationMetrics;
 
 public class BookBorrowing {
 
+  private long id;
   private User borrower;
   private Book borrowedBook;
-  private Date startDate;
-  private Date devolutionDate;
-  private static List<BookBorrowing> allBorrowings = new ArrayList<>();
+  private long startDay;
+  private long devolutionDay;
+  private static AtomicLong nextId = new AtomicLong(1);
+  private static Map<Long, BookBorrowing> borrowingsById = new ConcurrentHashMap<>();
+  private static Map<User, List<BookBorrowing>> borrowingsByUser = new ConcurrentHashMap<>();
+  private static Map<Book, List<BookBorrowing>> borrowingsByBook = new ConcurrentHashMap<>();
+  private static Map<Book, Waitlist> waitlists = new ConcurrentHashMap<>();
+  private static OverdueTracker overdueTracker = new OverdueTracker();
+  // Threads are reused across handovers, since the common pool starts a thread per task on a single core
+  private static ExecutorService waitlistNotifier = Executors.newCachedThreadPool(
+    runnable -> {
+      Thread thread = new Thread(runnable, "waitlist-notifier");
+      thread.setDaemon(true);
+      return thread;
+    }
+  );
+  private static OperationMetrics borrowMetrics = OperationMetrics.of(
+    "BookBorrowing.borrow"
+  );
+  private static OperationMetrics reserveMetrics = OperationMetrics.of(
+    "BookBorrowing.reserve"
+  );
+  private static OperationMetrics returnBookMetrics = OperationMetrics.of(
+    "BookBorrowing.returnBook"
+  );
+  private static OperationMetrics getUserBorrowingsMetrics = OperationMetrics.of(
+    "BookBorrowing.getUserBorrowings"
+  );
+  private static OperationMetrics getUserBorrowingByBookIsbnMetrics = OperationMetrics.of(
+    "BookBorrowing.getUserBorrowingByBookIsbn"
+  );
+  private static OperationMetrics hasLateBorrowingsMetrics = OperationMetrics.of(
+    "BookBorrowing.hasLateBorrowings"
+  );
 
-  public BookBorrowing(Book borrowedBook, User borrower, Date startDate)
-    throws LateBorrowingsException {
-    BookBorrowing.hasLateBorrowings(borrower);
+  /**
+   * This constructor borrows a copy of a book to a user, who must return it
+   * within the loan days of their user type.
+   *
+   * @param startDate The day the book is borrowed.
+   * @throws LateBorrowingsException If the user has late borrowings.
+   * @throws BookAlreadyBorrowedException If no copy of the book is available.
+   */
+  public BookBorrowing(Book borrowedBook, User borrower, LocalDate startDate)
+    throws LateBorrowingsException, BookAlreadyBorrowedException {
+    long startTime = System.nanoTime();
+    BookBorrowingEvent event = new BookBorrowingEvent();
+    event.begin();
+
+    try {
+      event.username = borrower.getUsername();
+      event.isbn = borrowedBook.getIsbn();
+
+      BookBorrowing.hasLateBorrowings(borrower);
+
+      CompletableFuture<Void> logged;
+      Journal journal = Journal.beginChange();
+
+      try {
+        if (!borrowedBook.reserveCopy()) {
+          throw new BookAlreadyBorrowedException();
+        }
+
+        logged = this.lend(borrowedBook, borrower, startDate.toEpochDay());
+      } finally {
+        Journal.endChange(journal);
+      }
+
+      logged.join();
+
+      event.borrowed = true;
+    } finally {
+      event.commit();
+      BookBorrowing.borrowMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This constructor creates a borrowing to be filled by lend,
+   * for a copy that was already reserved for the user or handed to them at a return.
+   */
+  private BookBorrowing() {}
+
+  /**
+   * This constructor restores a borrowing recovered by the journal,
+   * skipping the late borrowings check and the stock check that it already passed.
+   * The devolution day is kept as it was computed, even if the loan days changed since.
+   *
+   * @param startDay The day the book was borrowed, as an epoch day.
+   * @param devolutionDay The last day to return the book, as an epoch day.
+   * @param takesCopy Whether a copy of the book still has to be taken out of the stock.
+   */
+  BookBorrowing(
+    long id,
+    Book borrowedBook,
+    User borrower,
+    long startDay,
+    long devolutionDay,
+    boolean takesCopy
+  ) {
+    if (takesCopy) {
+      borrowedBook.takeCopy();
+    }
 
+    this.id = id;
     this.borrowedBook = borrowedBook;
     this.borrower = borrower;
-    this.startDate = startDate;
-    this.borrowedBook.setQuantityAvailable(
-        this.borrowedBook.getQuantityAvailable() - 1
-      );
+    this.startDay = startDay;
+    this.devolutionDay = devolutionDay;
+    BookBorrowing.nextId.accumulateAndGet(id + 1, Math::max);
+    this.register();
+  }
+
+  /**
+   * This method fills a new borrowing of a copy already taken out of the stock, registers it and logs it.
+   * It must be called in the same journal change as the one taking the copy.
+   *
+   * @return A future completed once the borrowing is logged, to be waited for after the change ends.
+   */
+  private CompletableFuture<Void> lend(
+    Book borrowedBook,
+    User borrower,
+    long startDay
+  ) {
+    this.id = BookBorrowing.nextId.getAndIncrement();
+    this.borrowedBook = borrowedBook;
+    this.borrower = borrower;
+    this.startDay = startDay;
+    this.devolutionDay = this.startDay + borrower.getType().getLoanDays();
+    this.register();
+
+    return Journal.logBookBorrowed(this);
+  }
+
+  /**
+   * This method borrows a copy of a book to a user if one is available,
+   * and otherwise puts the user in the book's waitlist, so they don't have to keep trying.
+   * The users of a waitlist are served in the order they joined it:
+   * each returned copy is borrowed to the first of them instead of going back to the stock.
+   * The returned future is completed on another thread than the one returning the book,
+   * so its callbacks don't delay the return. It can be cancelled to leave the waitlist,
+   * and a copy handed over while it was being cancelled goes to the next user waiting.
+   * If the user has late borrowings when their turn comes, the future fails with a LateBorrowingsException
+   * and the copy goes to the next user.
+   *
+   * @return A future completed with the borrowing once a copy is borrowed to the user.
+   * @throws LateBorrowingsException If the user has late borrowings.
+   */
+  public static CompletableFuture<BookBorrowing> reserve(
+    Book borrowedBook,
+    User borrower
+  ) throws LateBorrowingsException {
+    long startTime = System.nanoTime();
+
+    try {
+      BookBorrowing.hasLateBorrowings(borrower);
+
+      CompletableFuture<BookBorrowing> borrowing = new CompletableFuture<>();
+      BookBorrowing reservedBorrowing = null;
+      CompletableFuture<Void> logged = null;
+      Journal journal = Journal.beginChange();
+
+      try {
+        boolean isReserved = BookBorrowing
+          .waitlistOf(borrowedBook)
+          .reserveOrJoin(borrowedBook, borrower, borrowing);
+
+        if (isReserved) {
+          reservedBorrowing = new BookBorrowing();
+          logged =
+            reservedBorrowing.lend(borrowedBook, borrower, OverdueTracker.today());
+        }
+      } finally {
+        Journal.endChange(journal);
+      }
+
+      if (reservedBorrowing != null) {
+        logged.join();
+        borrowing.complete(reservedBorrowing);
+      }
+
+      return borrowing;
+    } finally {
+      BookBorrowing.reserveMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This method counts the users waiting for a copy of a book.
+   */
+  public static int countWaitingUsers(Book book) {
+    Waitlist waitlist = BookBorrowing.waitlists.get(book);
+
+    return waitlist == null ? 0 : waitlist.size();
+  }
 
-    Calendar calendar = Calendar.getInstance();
-    int daysUntilDevolution = 14;
-    calendar.setTime(startDate);
-    calendar.add(Calendar.DAY_OF_MONTH, daysUntilDevolution);
-    this.devolutionDate = calendar.getTime();
+  /**
+   * This method retrieves the waitlist of a book, creating it on first use.
+   * A waitlist is never removed, so every thread reserving or returning a copy of a book locks the same one.
+   */
+  private static Waitlist waitlistOf(Book book) {
+    return BookBorrowing.waitlists.computeIfAbsent(book, key -> new Waitlist());
+  }
 
-    BookBorrowing.allBorrowings.add(this);
+  /**
+   * This method hands a returned copy to the first user waiting for it who has no late borrowings,
+   * or puts it back into the stock if there is none.
+   * The users with late borrowings are told so through their future and leave the waitlist.
+   *
+   * @return The user the copy was handed to, or null if it went back to the stock.
+   */
+  private static Waitlist.Waiter handOverCopy(Book book) {
+    Waitlist waitlist = BookBorrowing.waitlistOf(book);
+
+    BookBorrowing.overdueTracker.sweep(OverdueTracker.today());
+
+    while (true) {
+      Waitlist.Waiter waiter = waitlist.handOverOrRelease(book);
+
+      if (
+        waiter == null ||
+        !BookBorrowing.overdueTracker.hasOverdueBorrowings(waiter.getUser())
+      ) {
+        return waiter;
+      }
+
+      waiter.getBorrowing().completeExceptionally(new LateBorrowingsException());
+    }
+  }
+
+  /**
+   * This method hands copies added to the stock of a book to the users waiting for it, one copy at a time
+   * and in the order they joined the waitlist, and puts the copies nobody is waiting for into the stock.
+   * It is called in the change that logged the added copies, so the borrowings are logged after them.
+   */
+  static void handOverAddedCopies(Book book, int addedCopies) {
+    if (BookBorrowing.waitlistOf(book).releaseIfNobodyWaits(book, addedCopies)) {
+      return;
+    }
+
+    for (int i = 0; i < addedCopies; i++) {
+      Waitlist.Waiter waiter = BookBorrowing.handOverCopy(book);
+
+      if (waiter != null) {
+        BookBorrowing borrowing = new BookBorrowing();
+        CompletableFuture<Void> logged = borrowing.lend(
+          book,
+          waiter.getUser(),
+          OverdueTracker.today()
+        );
+
+        BookBorrowing.lendToWaiter(borrowing, logged, waiter);
+      }
+    }
+  }
+
+  /**
+   * This method completes the future of the user who was waiting for a copy handed over
+   * at a return or a restock with the borrowing of that copy, on another thread.
+   * If the future was cancelled in the meantime, the copy is returned again and goes to the next user waiting.
+   * If the borrowing couldn't be logged, the future fails with the journal's error
+   * and the copy is returned again as well, so it isn't kept by a borrowing the user never got.
+   * It never throws, so the copy is never lost by the return that handed it over.
+   *
+   * @param logged The future completed once the borrowing is logged.
+   */
+  private static void lendToWaiter(
+    BookBorrowing borrowing,
+    CompletableFuture<Void> logged,
+    Waitlist.Waiter waiter
+  ) {
+    logged.whenCompleteAsync(
+      (result, failure) -> {
+        if (failure != null) {
+          waiter.getBorrowing().completeExceptionally(BookBorrowing.unwrap(failure));
+          BookBorrowing.giveBack(borrowing);
+        } else if (!waiter.getBorrowing().complete(borrowing)) {
+          BookBorrowing.giveBack(borrowing);
+        }
+      },
+      BookBorrowing.waitlistNotifier
+    );
+  }
+
+  /**
+   * This method returns a copy that was handed over to a user who didn't take it,
+   * so it goes to the next user waiting or back to the stock.
+   */
+  private static void giveBack(BookBorrowing borrowing) {
+    try {
+      borrowing.returnBook();
+    } catch (EntityNotFoundException e) {
+      // Returned by the user in the meantime, which gave the copy back already
+    } catch (CompletionException e) {
+      // The copy was handed on anyway, only the return record is missing from the journal
+      System.err.println("The return of an unclaimed copy could not be logged: " + e.getCause());
+    }
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null
+      ? failure.getCause()
+      : failure;
+  }
+
+  /**
+   * This method adds the borrowing to the indexes and to the overdue tracker.
+   */
+  private void register() {
+    BookBorrowing.borrowingsById.put(this.id, this);
+    BookBorrowing.borrowingsByUser.compute(
+      this.borrower,
+      (user, borrowings) -> BookBorrowing.withBorrowing(borrowings, this)
+    );
+    BookBorrowing.borrowingsByBook.compute(
+      this.borrowedBook,
+      (book, borrowings) -> BookBorrowing.withBorrowing(borrowings, this)
+    );
+    BookBorrowing.overdueTracker.track(this);
   }
 
   /**
@@ -45,9 +353,9 @@ public class BookBorrowing {
    *         If no borrowing record is found, null is returned.
    */
   public static BookBorrowing getBookBorrowing(Book borrowedBook) {
-    return BookBorrowing.allBorrowings
+    return BookBorrowing.borrowingsByBook
+      .getOrDefault(borrowedBook, List.of())
       .stream()
-      .filter(bookBorrowing -> bookBorrowing.borrowedBook.equals(borrowedBook))
       .findFirst()
       .orElse(null);
   }
@@ -60,10 +368,15 @@ public class BookBorrowing {
    *         If no borrowings are found, an empty list is returned.
    */
   public static List<BookBorrowing> getUserBorrowings(User user) {
-    return BookBorrowing.allBorrowings
-      .stream()
-      .filter(bookBorrowing -> bookBorrowing.borrower.equals(user))
-      .toList();
+    long startTime = System.nanoTime();
+
+    try {
+      return List.copyOf(
+        BookBorrowing.borrowingsByUser.getOrDefault(user, List.of())
+      );
+    } finally {
+      BookBorrowing.getUserBorrowingsMetrics.record(startTime);
+    }
   }
 
   /**
@@ -78,34 +391,41 @@ public class BookBorrowing {
     User user,
     String isbn
   ) throws EntityNotFoundException {
-    // Use Stream API to filter the list of borrowings associated with the given user
-    // and find the first borrowing record where the book's ISBN matches the given ISBN (case-insensitive)
-    BookBorrowing borrowing = BookBorrowing
-      .getUserBorrowings(user)
-      .stream()
-      .filter(bookBorrowing ->
-        bookBorrowing.borrowedBook.getIsbn().equalsIgnoreCase(isbn)
-      )
-      .findFirst()
-      .orElse(null);
+    long startTime = System.nanoTime();
 
-    if (borrowing == null) {
-      throw new EntityNotFoundException(
-        MessageFormat.format(
-          "No borrowing record found for user {0} and ISBN {1}.",
-          user.getUsername(),
-          isbn
-        )
-      );
-    }
+    try {
+      Book borrowedBook = Book.getByIsbn(isbn);
 
-    return borrowing;
+      // Use Stream API to filter the list of borrowings associated with the given user
+      // and find the first borrowing record of the book resolved from the ISBN index.
+      // Books are compared with equals, since a columnar book is read into a new object each time
+      BookBorrowing borrowing = BookBorrowing.borrowingsByUser
+        .getOrDefault(user, List.of())
+        .stream()
+        .filter(bookBorrowing -> bookBorrowing.borrowedBook.equals(borrowedBook))
+        .findFirst()
+        .orElse(null);
+
+      if (borrowing == null) {
+        throw new EntityNotFoundException(
+          MessageFormat.format(
+            "No borrowing record found for user {0} and ISBN {1}.",
+            user.getUsername(),
+            isbn
+          )
+        );
+      }
+
+      return borrowing;
+    } finally {
+      BookBorrowing.getUserBorrowingByBookIsbnMetrics.record(startTime);
+    }
   }
 
   /**
    * This method is used to check if a user has any late book borrowings.
-   * It iterates through the list of all borrowings of the given user and checks if the due date of any borrowing is before the current date.
-   * If a late borrowing is found, a LateBorrowingsException is thrown.
+   * It sweeps the borrowings that became late since the last sweep and then looks the user up in the set of users with late borrowings.
+   * If the user has a late borrowing, a LateBorrowingsException is thrown.
    *
    * @param user The user whose borrowings are being checked.
    * @return True if the user has any late borrowings, false otherwise.
@@ -113,63 +433,222 @@ public class BookBorrowing {
    */
   public static boolean hasLateBorrowings(User user)
     throws LateBorrowingsException {
-    boolean hasLateBorrowings = BookBorrowing
-      .getUserBorrowings(user)
-      .stream()
-      .anyMatch(bookBorrowing -> bookBorrowing.devolutionDate.before(new Date())
+    long startTime = System.nanoTime();
+    LateBorrowingsCheckEvent event = new LateBorrowingsCheckEvent();
+    event.begin();
+
+    try {
+      BookBorrowing.overdueTracker.sweep(OverdueTracker.today());
+
+      boolean hasLateBorrowings = BookBorrowing.overdueTracker.hasOverdueBorrowings(
+        user
       );
+      event.username = user.getUsername();
+      event.hasLateBorrowings = hasLateBorrowings;
 
-    if (hasLateBorrowings) {
-      throw new LateBorrowingsException();
+      if (hasLateBorrowings) {
+        throw new LateBorrowingsException();
+      }
+
+      return hasLateBorrowings;
+    } finally {
+      event.commit();
+      BookBorrowing.hasLateBorrowingsMetrics.record(startTime);
     }
+  }
+
+  /**
+   * This method retrieves all the borrowings whose devolution date has passed and that were not returned yet.
+   * The late borrowings are kept apart by the overdue tracker, so the active borrowings are not scanned.
+   *
+   * @return A list of late BookBorrowing objects, ordered by devolution date.
+   */
+  public static List<BookBorrowing> getOverdueBorrowings() {
+    BookBorrowing.overdueTracker.sweep(OverdueTracker.today());
 
-    return hasLateBorrowings;
+    return BookBorrowing.overdueTracker.getOverdueBorrowings();
   }
 
   /**
    * This method is used to return a borrowed book.
-   * It iterates through the list of all borrowings and removes the borrowing record
-   * associated with the given book.
+   * It removes this borrowing record from the records indexed by id
+   * and hands the copy to the first user waiting for the book, or increments its quantity available if nobody is.
+   * The return is queued for the journal before the copy is borrowed again, so the journal never holds
+   * the new borrowing of the copy without its return.
    *
-   * @param borrowedBook The book that is being returned.
+   * @throws EntityNotFoundException If this borrowing record was already returned.
    */
   public void returnBook() throws EntityNotFoundException {
-    for (int i = 0; i < BookBorrowing.allBorrowings.size(); i++) {
-      boolean isReturnedBook = BookBorrowing.allBorrowings
-        .get(i)
-        .borrowedBook.equals(this.borrowedBook);
-
-      if (isReturnedBook) {
-        int incrementedBookQuantity =
-          this.borrowedBook.getQuantityAvailable() + 1;
-        this.borrowedBook.setQuantityAvailable(incrementedBookQuantity);
-        BookBorrowing.allBorrowings.remove(i);
-        return;
+    long startTime = System.nanoTime();
+    BookReturnEvent event = new BookReturnEvent();
+    event.begin();
+
+    try {
+      event.username = this.borrower.getUsername();
+      event.isbn = this.borrowedBook.getIsbn();
+
+      Waitlist.Waiter nextWaiter;
+      BookBorrowing nextBorrowing = null;
+      CompletableFuture<Void> returnLogged;
+      CompletableFuture<Void> nextBorrowingLogged = null;
+      Journal journal = Journal.beginChange();
+
+      try {
+        if (BookBorrowing.borrowingsById.remove(this.id) == null) {
+          throw new EntityNotFoundException(
+            "The returned book was not found as one of the books the user borrowed"
+          );
+        }
+
+        nextWaiter = BookBorrowing.handOverCopy(this.borrowedBook);
+        BookBorrowing.removeFromIndexes(this);
+        BookBorrowing.overdueTracker.untrack(this);
+
+        returnLogged = Journal.logBookReturned(this);
+
+        // Lent in the same change, so no snapshot sees the copy between the two borrowings
+        if (nextWaiter != null) {
+          nextBorrowing = new BookBorrowing();
+          nextBorrowingLogged =
+            nextBorrowing.lend(
+              this.borrowedBook,
+              nextWaiter.getUser(),
+              OverdueTracker.today()
+            );
+        }
+      } finally {
+        Journal.endChange(journal);
+      }
+
+      // The waiter is served even if the return couldn't be logged, since the copy is already theirs
+      if (nextWaiter != null) {
+        BookBorrowing.lendToWaiter(nextBorrowing, nextBorrowingLogged, nextWaiter);
       }
+
+      returnLogged.join();
+
+      event.returned = true;
+    } finally {
+      event.commit();
+      BookBorrowing.returnBookMetrics.record(startTime);
+    }
+  }
+
+  /**
+   * This method retrieves a borrowing record based on its id.
+   *
+   * @param id The id of the borrowing record.
+   * @return The BookBorrowing object with the given id.
+   * @throws EntityNotFoundException If no active borrowing record has the given id.
+   */
+  public static BookBorrowing getBorrowingById(long id)
+    throws EntityNotFoundException {
+    BookBorrowing borrowing = BookBorrowing.borrowingsById.get(id);
+
+    if (borrowing == null) {
+      throw new EntityNotFoundException(
+        "\nNo borrowing record found with id: " + id
+      );
     }
 
-    throw new EntityNotFoundException(
-      "The returned book was not found as one of the books the user borrowed"
+    return borrowing;
+  }
+
+  /**
+   * This method removes a borrowing record from the per-user and per-book indexes.
+   * The lists are updated inside compute calls, so an index entry is dropped
+   * atomically once its last borrowing is removed.
+   *
+   * @param borrowing The borrowing record being removed.
+   */
+  private static void removeFromIndexes(BookBorrowing borrowing) {
+    BookBorrowing.borrowingsByUser.computeIfPresent(
+      borrowing.borrower,
+      (user, borrowings) -> BookBorrowing.withoutBorrowing(borrowings, borrowing)
+    );
+    BookBorrowing.borrowingsByBook.computeIfPresent(
+      borrowing.borrowedBook,
+      (book, borrowings) -> BookBorrowing.withoutBorrowing(borrowings, borrowing)
     );
   }
 
+  private static List<BookBorrowing> withBorrowing(
+    List<BookBorrowing> borrowings,
+    BookBorrowing borrowing
+  ) {
+    List<BookBorrowing> updatedBorrowings = borrowings == null
+      ? new CopyOnWriteArrayList<>()
+      : borrowings;
+    updatedBorrowings.add(borrowing);
+
+    return updatedBorrowings;
+  }
+
+  private static List<BookBorrowing> withoutBorrowing(
+    List<BookBorrowing> borrowings,
+    BookBorrowing borrowing
+  ) {
+    borrowings.remove(borrowing);
+
+    return borrowings.isEmpty() ? null : borrowings;
+  }
+
+  /**
+   * This method retrieves an active borrowing by its id.
+   *
+   * @return The borrowing with the given id, or null if there is none.
+   */
+  static BookBorrowing findById(long id) {
+    return BookBorrowing.borrowingsById.get(id);
+  }
+
+  /**
+   * This method retrieves every active borrowing.
+   */
+  static List<BookBorrowing> getAllBorrowings() {
+    return List.copyOf(BookBorrowing.borrowingsById.values());
+  }
+
+  static boolean isActive(BookBorrowing borrowing) {
+    return BookBorrowing.borrowingsById.containsKey(borrowing.id);
+  }
+
+  long getStartDay() {
+    return this.startDay;
+  }
+
+  long getDevolutionDay() {
+    return this.devolutionDay;
+  }
+
+  public LocalDate getStartDate() {
+    return LocalDate.ofEpochDay(this.startDay);
+  }
+
+  /**
+   * This method retrieves the last day to return the book. The borrowing is late from the following day on.
+   */
+  public LocalDate getDevolutionDate() {
+    return LocalDate.ofEpochDay(this.devolutionDay);
+  }
+
+  public long getId() {
+    return this.id;
+  }
+
+  public User getBorrower() {
+    return this.borrower;
+  }
+
+  public Book getBorrowedBook() {
+    return this.borrowedBook;
+  }
+
   /**
    * This method displays information about the book borrowing, including the book title, the borrower, the start date, and the due date.
+   * Lists of borrowings should be displayed with ConsoleRenderer.renderBorrowings, which flushes the console once for the whole list.
    */
   public void displayInfo() {
-    SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-
-    System.out.println("----------------------------------------------------");
-    System.out.println(
-      MessageFormat.format(
-        "Book ISBN: {0}\nBook title: {1}\nBorrower: {2}\nStart Date: {3}\nDevolution Date: {4}\n",
-        this.borrowedBook.getTitle(),
-        this.borrowedBook.getIsbn(),
-        this.borrower.getUsername(),
-        dateFormat.format(this.startDate),
-        dateFormat.format(this.devolutionDate)
-      )
-    );
-    System.out.println("----------------------------------------------------");
+    ConsoleRenderer.renderBorrowing(this);
   }
 }
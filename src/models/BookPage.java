@@ -0,0 +1,74 @@
+package models;
+
+import java.util.List;
+
+/**
+ * One page of books returned by a paginated query, in id order.
+ * The continuation token tells the next query where to resume, so the books
+ * after this page are neither read nor kept until that page is requested.
+ * Pages of ranked searches are in rank order instead, and their token holds the rank the next page starts at.
+ */
+public class BookPage {
+
+  private static final int LAST_PAGE = -1;
+
+  private List<Book> books;
+  private int nextId;
+
+  BookPage(List<Book> books, int nextId) {
+    this.books = books;
+    this.nextId = nextId;
+  }
+
+  public List<Book> getBooks() {
+    return this.books;
+  }
+
+  /**
+   * This method checks if the query can continue after this page.
+   * The next page can still be empty, since the books after this page are not checked in advance.
+   */
+  public boolean hasNextPage() {
+    return this.nextId != LAST_PAGE;
+  }
+
+  /**
+   * This method retrieves the token that requests the page after this one.
+   *
+   * @return The continuation token, or null if this is the last page.
+   */
+  public String getContinuationToken() {
+    return this.hasNextPage() ? Integer.toString(this.nextId, Character.MAX_RADIX) : null;
+  }
+
+  /**
+   * This method retrieves the id a paginated query starts from.
+   *
+   * @param continuationToken The token of the previous page, or null for the first page.
+   * @return The id of the first book that can be on the page.
+   * @throws IllegalArgumentException If the token was not created by getContinuationToken.
+   */
+  static int toFirstId(String continuationToken) {
+    if (continuationToken == null) {
+      return 0;
+    }
+
+    try {
+      int firstId = Integer.parseInt(continuationToken, Character.MAX_RADIX);
+
+      if (firstId < 0) {
+        throw new NumberFormatException();
+      }
+
+      return firstId;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+        "Invalid continuation token " + continuationToken
+      );
+    }
+  }
+
+  static int lastPage() {
+    return LAST_PAGE;
+  }
+}
@@ -0,0 +1,191 @@
+package models;
+
+import enums.Genre;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram index over the lowercased title, author and ISBN of every book.
+ * Each posting list keeps the books in creation order, which is also id order,
+ * so merging them keeps the same result order as a scan over the whole catalog
+ * and a search can resume from any id.
+ *
+ * Books are added by one thread at a time while searches read the index without locking.
+ * Posting lists are only appended to, so a search bounded by the catalog size it started with
+ * never sees the books added after it started.
+ */
+class BookSearchIndex {
+
+  static final int GRAM_LENGTH = 3;
+
+  private Map<String, AppendOnlyList<Book>> postings = new ConcurrentHashMap<>();
+  private Map<Genre, AppendOnlyList<Book>> booksByGenre = new EnumMap<>(Genre.class);
+
+  BookSearchIndex() {
+    // Every genre gets its list up front, so the map is never changed while it is read
+    for (Genre genre : Genre.values()) {
+      this.booksByGenre.put(genre, new AppendOnlyList<>());
+    }
+  }
+
+  /**
+   * This method adds a book to the postings of every trigram found in its searchable fields.
+   *
+   * @param book The book being indexed.
+   */
+  void add(Book book) {
+    Set<String> grams = new HashSet<>();
+    addGrams(book.getSearchableTitle(), grams);
+    addGrams(book.getSearchableAuthor(), grams);
+    addGrams(book.getSearchableIsbn(), grams);
+
+    for (String gram : grams) {
+      this.postings.computeIfAbsent(gram, key -> new AppendOnlyList<>()).add(book);
+    }
+
+    this.booksByGenre.get(book.getGenre()).add(book);
+  }
+
+  /**
+   * This method adds to foundBooks, in creation order starting at the book with id fromId,
+   * and with an id lower than toId, the books matching a lowercased search term that has at least three characters.
+   * Only the shortest posting list among the term's trigrams is verified against the books' fields,
+   * and it is merged with the lists of the genres containing the term, which need no verification.
+   * The lists are walked from fromId, so a page only reads the books up to its last result.
+   *
+   * @param lowerCasedSearchTerm The lowercased search term.
+   * @param fromId The id of the first book that can be returned.
+   * @param toId The id after the last book that can be returned, the size of the catalog being searched.
+   * @param maxResults The number of books after which the search stops.
+   * @param foundBooks The list the matching books are added to.
+   * @return The id the search continues from, or -1 if every book was searched.
+   */
+  int search(
+    String lowerCasedSearchTerm,
+    int fromId,
+    int toId,
+    int maxResults,
+    List<Book> foundBooks
+  ) {
+    List<List<Book>> sources = new ArrayList<>();
+    sources.add(this.getRarestPosting(lowerCasedSearchTerm));
+
+    for (Genre genre : Genre.values()) {
+      boolean isMatchedGenre = genre
+        .toString()
+        .toLowerCase()
+        .contains(lowerCasedSearchTerm);
+
+      if (isMatchedGenre) {
+        sources.add(this.booksByGenre.get(genre));
+      }
+    }
+
+    int[] positions = new int[sources.size()];
+
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = firstPositionFrom(sources.get(i), fromId);
+    }
+
+    int found = 0;
+
+    while (true) {
+      Book next = null;
+
+      for (int i = 0; i < positions.length; i++) {
+        if (positions[i] < sources.get(i).size()) {
+          Book head = sources.get(i).get(positions[i]);
+
+          if (next == null || head.getId() < next.getId()) {
+            next = head;
+          }
+        }
+      }
+
+      if (next == null || next.getId() >= toId) {
+        return -1;
+      }
+
+      // The posting list at index 0 holds candidates, the genre lists hold matches
+      boolean isMatched = false;
+
+      for (int i = 0; i < positions.length; i++) {
+        if (
+          positions[i] < sources.get(i).size() &&
+          sources.get(i).get(positions[i]).equals(next)
+        ) {
+          positions[i]++;
+          isMatched = isMatched || i > 0 || next.matches(lowerCasedSearchTerm);
+        }
+      }
+
+      if (isMatched) {
+        foundBooks.add(next);
+
+        if (++found == maxResults) {
+          return next.getId() + 1;
+        }
+      }
+    }
+  }
+
+  /**
+   * This method counts the books with an id from fromId and lower than toId
+   * that a search for a lowercased term verifies against their fields.
+   */
+  int countCandidates(String lowerCasedSearchTerm, int fromId, int toId) {
+    List<Book> rarestPosting = this.getRarestPosting(lowerCasedSearchTerm);
+
+    return firstPositionFrom(rarestPosting, toId) - firstPositionFrom(rarestPosting, fromId);
+  }
+
+  private List<Book> getRarestPosting(String lowerCasedSearchTerm) {
+    List<Book> rarestPosting = null;
+
+    for (int i = 0; i + GRAM_LENGTH <= lowerCasedSearchTerm.length(); i++) {
+      String gram = lowerCasedSearchTerm.substring(i, i + GRAM_LENGTH);
+      List<Book> posting = this.postings.get(gram);
+
+      if (posting == null) {
+        return List.of();
+      }
+
+      if (rarestPosting == null || posting.size() < rarestPosting.size()) {
+        rarestPosting = posting;
+      }
+    }
+
+    return rarestPosting;
+  }
+
+  private static void addGrams(String text, Set<String> grams) {
+    for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+      grams.add(text.substring(i, i + GRAM_LENGTH));
+    }
+  }
+
+  /**
+   * This method finds the position of the first book with an id not lower than fromId in a list sorted by id.
+   */
+  private static int firstPositionFrom(List<Book> books, int fromId) {
+    int low = 0;
+    int high = books.size();
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+
+      if (books.get(middle).getId() < fromId) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+}
@@ -0,0 +1,234 @@
+package models;
+
+import enums.Genre;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Imports books in bulk from a CSV or TSV file with the columns
+ * isbn, title, author, genre and quantity, optionally preceded by a header line.
+ */
+public class CatalogImporter {
+
+  private static final int BATCH_SIZE = 10_000;
+  private static final int MAX_REPORTED_REJECTIONS = 1_000;
+  private static final int COLUMN_COUNT = 5;
+
+  /**
+   * This method streams a catalog file in batches, so only one batch of lines is kept in memory.
+   * The lines of each batch are parsed and validated in parallel,
+   * and the valid books are registered in the catalog and its indexes in a single pass per batch.
+   * Files ending in ".tsv" are split on tabs, any other file on commas.
+   *
+   * @param path The path of the catalog file.
+   * @return A report with the imported rows, the rejected lines and the import speed.
+   * @throws IOException If the file can't be read.
+   */
+  public static Report importCatalog(Path path) throws IOException {
+    char separator = path.toString().toLowerCase().endsWith(".tsv")
+      ? '\t'
+      : ',';
+    Report report = new Report();
+    long startTime = System.nanoTime();
+
+    try (
+      BufferedReader reader = Files.newBufferedReader(
+        path,
+        StandardCharsets.UTF_8
+      )
+    ) {
+      List<String> batch = new ArrayList<>(BATCH_SIZE);
+      long firstLineNumber = 1;
+      long lineNumber = 0;
+      String line;
+
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+
+        if (lineNumber == 1 && line.toLowerCase().startsWith("isbn")) {
+          firstLineNumber = 2;
+          continue;
+        }
+
+        batch.add(line);
+
+        if (batch.size() == BATCH_SIZE) {
+          importBatch(batch, firstLineNumber, separator, report);
+          firstLineNumber = lineNumber + 1;
+          batch.clear();
+        }
+      }
+
+      importBatch(batch, firstLineNumber, separator, report);
+    }
+
+    report.elapsedNanos = System.nanoTime() - startTime;
+
+    return report;
+  }
+
+  private static void importBatch(
+    List<String> lines,
+    long firstLineNumber,
+    char separator,
+    Report report
+  ) {
+    Book[] parsedBooks = new Book[lines.size()];
+    String[] rejections = new String[lines.size()];
+
+    IntStream
+      .range(0, lines.size())
+      .parallel()
+      .forEach(i -> {
+        if (lines.get(i).isBlank()) {
+          return;
+        }
+
+        try {
+          parsedBooks[i] = parseLine(lines.get(i), separator);
+        } catch (IllegalArgumentException e) {
+          rejections[i] = "Line " + (firstLineNumber + i) + ": " + e.getMessage();
+        }
+      });
+
+    List<Book> validBooks = new ArrayList<>(lines.size());
+
+    for (int i = 0; i < lines.size(); i++) {
+      if (parsedBooks[i] != null) {
+        validBooks.add(parsedBooks[i]);
+      } else if (rejections[i] != null) {
+        report.reject(rejections[i]);
+      }
+    }
+
+    Book.registerAll(validBooks);
+    report.importedRows += validBooks.size();
+  }
+
+  /**
+   * This method parses and validates one line of the catalog file.
+   *
+   * @throws IllegalArgumentException If the line is not a valid book.
+   */
+  private static Book parseLine(String line, char separator) {
+    List<String> columns = splitColumns(line, separator);
+
+    if (columns.size() != COLUMN_COUNT) {
+      throw new IllegalArgumentException(
+        "expected " + COLUMN_COUNT + " columns but found " + columns.size()
+      );
+    }
+
+    String isbn = columns.get(0);
+    String title = columns.get(1);
+    String author = columns.get(2);
+
+    if (isbn.isBlank() || title.isBlank() || author.isBlank()) {
+      throw new IllegalArgumentException("isbn, title and author are required");
+    }
+
+    Genre genre;
+
+    try {
+      genre = Genre.valueOf(columns.get(3).toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("unknown genre " + columns.get(3));
+    }
+
+    int quantityAvailable;
+
+    try {
+      quantityAvailable = Integer.parseInt(columns.get(4));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid quantity " + columns.get(4));
+    }
+
+    if (quantityAvailable < 0) {
+      throw new IllegalArgumentException("negative quantity " + quantityAvailable);
+    }
+
+    return Book.createUnregistered(genre, isbn, title, author, quantityAvailable);
+  }
+
+  /**
+   * This method splits a line into trimmed columns.
+   * Columns can be enclosed in double quotes, and a doubled quote inside them stands for a quote.
+   */
+  private static List<String> splitColumns(String line, char separator) {
+    List<String> columns = new ArrayList<>(COLUMN_COUNT);
+    StringBuilder column = new StringBuilder();
+    boolean isQuoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      char character = line.charAt(i);
+
+      if (character == '"') {
+        if (isQuoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          column.append('"');
+          i++;
+        } else {
+          isQuoted = !isQuoted;
+        }
+      } else if (character == separator && !isQuoted) {
+        columns.add(column.toString().strip());
+        column.setLength(0);
+      } else {
+        column.append(character);
+      }
+    }
+
+    columns.add(column.toString().strip());
+
+    return columns;
+  }
+
+  public static class Report {
+
+    private long importedRows;
+    private long rejectedRows;
+    private long elapsedNanos;
+    private List<String> rejectedLines = new ArrayList<>();
+
+    private void reject(String rejection) {
+      this.rejectedRows++;
+
+      if (this.rejectedLines.size() < MAX_REPORTED_REJECTIONS) {
+        this.rejectedLines.add(rejection);
+      }
+    }
+
+    public long getImportedRows() {
+      return this.importedRows;
+    }
+
+    public long getRejectedRows() {
+      return this.rejectedRows;
+    }
+
+    /**
+     * This method retrieves the rejected lines with their line numbers and the reason of the rejection.
+     * Only the first thousand rejections are kept.
+     */
+    public List<String> getRejectedLines() {
+      return this.rejectedLines;
+    }
+
+    public double getElapsedSeconds() {
+      return this.elapsedNanos / 1_000_000_000.0;
+    }
+
+    public long getRowsPerSecond() {
+      long processedRows = this.importedRows + this.rejectedRows;
+
+      return this.elapsedNanos == 0
+        ? processedRows
+        : processedRows * 1_000_000_000 / this.elapsedNanos;
+    }
+  }
+}
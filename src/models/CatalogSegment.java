@@ -0,0 +1,82 @@
+package models;
+
+import enums.Genre;
+import java.util.List;
+
+/**
+ * Storage engine holding the first books of the catalog outside the Book object list.
+ * Records are numbered from 0 and the record number is also the id of the book.
+ * A Book object is only created for the records that are returned by a query.
+ *
+ * Records are appended by one thread at a time and read by any number of threads without locking.
+ * Readers only read the records below the segment size of the catalog snapshot they started with,
+ * which were completely written before that snapshot was published.
+ */
+interface CatalogSegment {
+  /**
+   * This method retrieves the number of records. It is only read by the thread appending records,
+   * readers take the size of the segment from the catalog snapshot.
+   */
+  int size();
+
+  /**
+   * This method retrieves the book of a record. Quantity changes made through the returned book
+   * are seen by every later read of the record.
+   */
+  Book getBook(int record);
+
+  /**
+   * This method reads a record into a new Book object with its current quantity, without keeping it.
+   */
+  Book readBook(int record);
+
+  int getQuantityAvailable(int record);
+
+  /**
+   * This method reads the genre of a record without creating its Book object.
+   */
+  Genre getGenre(int record);
+
+  /**
+   * This method retrieves the books of the segment whose quantity is kept outside of the segment,
+   * which are the books that were requested so far.
+   */
+  List<Book> getMaterializedBooks();
+
+  /**
+   * This method finds the first record with a normalized ISBN.
+   *
+   * @return The record number, or -1 if no record has the ISBN.
+   */
+  int findByIsbn(String normalizedIsbn);
+
+  /**
+   * This method adds to foundBooks, in record order from fromRecord up to toRecord, the books whose author or title
+   * contain a lowercased search term, whose ISBN is equal to it or whose genre is marked in matchedGenres.
+   * It stops as soon as maxResults books were added, so the following records are not read.
+   *
+   * @return The record the search continues from, or toRecord if every record was searched.
+   */
+  int search(
+    String lowerCasedSearchTerm,
+    boolean[] matchedGenres,
+    int fromRecord,
+    int toRecord,
+    int maxResults,
+    List<Book> foundBooks
+  );
+
+  /**
+   * This method checks if new books can be appended to the segment.
+   * Segments that can't be appended are backed by a file and don't need to be saved by the journal.
+   */
+  boolean isAppendable();
+
+  /**
+   * This method appends a book as a new record, copying its fields
+   * and moving its quantity into the segment, so the book and the record share the same stock.
+   *
+   * @return The record number of the book.
+   */
+  int append(Book book);
+}
@@ -0,0 +1,367 @@
+package models;
+
+import enums.Genre;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * In-memory catalog storing each field of the books in its own array.
+ *
+ * ISBN-13s are kept as longs and any other ISBN as text, genres as byte
+ * ordinals and quantities in atomic int arrays. Authors are stored once in a
+ * dictionary and referenced by index, and the author part of a search is
+ * matched once per dictionary entry instead of once per book.
+ * ISBNs are kept normalized, so books read from this catalog show their
+ * ISBN without hyphens or spaces and are matched by searches ignoring them.
+ *
+ * Appends are made by one thread at a time while readers read the columns without locking.
+ * The column arrays are replaced together by larger copies when they are full, and readers
+ * read them once per query, so a query never mixes columns of different sizes.
+ *
+ * The quantity column is the only place the stock of a record is kept. It is split in pages that are
+ * never copied, and the Book objects returned for a record are views that read and change their
+ * quantity in the record's slot, so they are created on demand and never kept by the catalog.
+ */
+class ColumnarCatalog implements CatalogSegment {
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int QUANTITY_PAGE_SHIFT = 12;
+  private static final int QUANTITY_PAGE_SIZE = 1 << QUANTITY_PAGE_SHIFT;
+  private static final int ISBN_13_LENGTH = 13;
+  private static final long NO_NUMERIC_ISBN = -1;
+  private static final Genre[] GENRES = Genre.values();
+
+  private int size;
+  private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+  private volatile AtomicIntegerArray[] quantityPages = new AtomicIntegerArray[0];
+  private Map<Integer, String> textIsbns = new ConcurrentHashMap<>();
+  private List<String> authors = new AppendOnlyList<>();
+  private Map<String, Integer> authorIdsByName = new HashMap<>();
+  private IsbnTable recordsByNumericIsbn = new IsbnTable();
+  private Map<String, Integer> recordsByTextIsbn = new ConcurrentHashMap<>();
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public int append(Book book) {
+    if (this.size == this.columns.titles.length) {
+      this.columns = this.columns.copyOf(this.size * 2);
+    }
+
+    Columns columns = this.columns;
+    int record = this.size;
+    String normalizedIsbn = Book.normalizeIsbn(book.getIsbn());
+    long numericIsbn = toNumericIsbn(normalizedIsbn);
+
+    columns.numericIsbns[record] = numericIsbn;
+    columns.genres[record] = (byte) book.getGenre().ordinal();
+    columns.authorIds[record] = this.authorIdOf(book.getAuthor());
+    columns.titles[record] = book.getTitle();
+
+    if (numericIsbn == NO_NUMERIC_ISBN) {
+      this.textIsbns.put(record, normalizedIsbn);
+      this.recordsByTextIsbn.putIfAbsent(normalizedIsbn, record);
+    } else {
+      this.recordsByNumericIsbn.putIfAbsent(numericIsbn, record);
+    }
+
+    if (record >> QUANTITY_PAGE_SHIFT == this.quantityPages.length) {
+      AtomicIntegerArray[] quantityPages = Arrays.copyOf(
+        this.quantityPages,
+        this.quantityPages.length + 1
+      );
+      quantityPages[quantityPages.length - 1] = new AtomicIntegerArray(QUANTITY_PAGE_SIZE);
+      this.quantityPages = quantityPages;
+    }
+
+    book.moveQuantityTo(this.quantityPageOf(record), quantityIndexOf(record));
+    this.size++;
+
+    return record;
+  }
+
+  /**
+   * This method creates a view of the record, which shares the record's stock with every other view of it.
+   */
+  @Override
+  public Book getBook(int record) {
+    Columns columns = this.columns;
+
+    return Book.createForColumn(
+      record,
+      GENRES[columns.genres[record]],
+      this.isbnOf(columns, record),
+      columns.titles[record],
+      this.authors.get(columns.authorIds[record]),
+      this.quantityPageOf(record),
+      quantityIndexOf(record)
+    );
+  }
+
+  @Override
+  public Book readBook(int record) {
+    Columns columns = this.columns;
+
+    return Book.createForRecord(
+      record,
+      GENRES[columns.genres[record]],
+      this.isbnOf(columns, record),
+      columns.titles[record],
+      this.authors.get(columns.authorIds[record]),
+      this.getQuantityAvailable(record)
+    );
+  }
+
+  @Override
+  public int getQuantityAvailable(int record) {
+    return this.quantityPageOf(record).get(quantityIndexOf(record));
+  }
+
+  @Override
+  public Genre getGenre(int record) {
+    return GENRES[this.columns.genres[record]];
+  }
+
+  /**
+   * This method retrieves no book, since the quantities of every record are kept in the segment.
+   */
+  @Override
+  public List<Book> getMaterializedBooks() {
+    return List.of();
+  }
+
+  @Override
+  public int findByIsbn(String normalizedIsbn) {
+    long numericIsbn = toNumericIsbn(normalizedIsbn);
+
+    if (numericIsbn == NO_NUMERIC_ISBN) {
+      return this.recordsByTextIsbn.getOrDefault(normalizedIsbn, -1);
+    }
+
+    return this.recordsByNumericIsbn.get(numericIsbn);
+  }
+
+  /**
+   * This method matches the term against the author dictionary once,
+   * and then scans the genre, author, ISBN and title columns.
+   * Titles are compared ignoring case, so no lowercased copy of them is kept.
+   */
+  @Override
+  public int search(
+    String lowerCasedSearchTerm,
+    boolean[] matchedGenres,
+    int fromRecord,
+    int toRecord,
+    int maxResults,
+    List<Book> foundBooks
+  ) {
+    Columns columns = this.columns;
+    boolean[] matchedAuthors = new boolean[this.authors.size()];
+
+    for (int i = 0; i < matchedAuthors.length; i++) {
+      matchedAuthors[i] = containsIgnoreCase(this.authors.get(i), lowerCasedSearchTerm);
+    }
+
+    String normalizedTerm = Book.normalizeIsbn(lowerCasedSearchTerm);
+    long numericTerm = toNumericIsbn(normalizedTerm);
+    Integer textIsbnRecord = this.recordsByTextIsbn.get(
+        normalizedTerm.toUpperCase()
+      );
+    int found = 0;
+
+    for (int record = fromRecord; record < toRecord; record++) {
+      boolean isMatched =
+        matchedGenres[columns.genres[record]] ||
+        matchedAuthors[columns.authorIds[record]] ||
+        (numericTerm != NO_NUMERIC_ISBN && columns.numericIsbns[record] == numericTerm) ||
+        (textIsbnRecord != null && textIsbnRecord == record) ||
+        containsIgnoreCase(columns.titles[record], lowerCasedSearchTerm);
+
+      if (isMatched) {
+        foundBooks.add(this.getBook(record));
+
+        if (++found == maxResults) {
+          return record + 1;
+        }
+      }
+    }
+
+    return toRecord;
+  }
+
+  @Override
+  public boolean isAppendable() {
+    return true;
+  }
+
+  private String isbnOf(Columns columns, int record) {
+    long numericIsbn = columns.numericIsbns[record];
+
+    return numericIsbn == NO_NUMERIC_ISBN
+      ? this.textIsbns.get(record)
+      : String.format("%013d", numericIsbn);
+  }
+
+  private AtomicIntegerArray quantityPageOf(int record) {
+    return this.quantityPages[record >> QUANTITY_PAGE_SHIFT];
+  }
+
+  private static int quantityIndexOf(int record) {
+    return record & (QUANTITY_PAGE_SIZE - 1);
+  }
+
+  private int authorIdOf(String author) {
+    return this.authorIdsByName.computeIfAbsent(
+        author,
+        key -> {
+          this.authors.add(key);
+          return this.authors.size() - 1;
+        }
+      );
+  }
+
+  /**
+   * This method converts a normalized ISBN made of exactly 13 digits to a long.
+   *
+   * @return The ISBN as a long, or -1 if it is not an ISBN-13.
+   */
+  private static long toNumericIsbn(String normalizedIsbn) {
+    if (normalizedIsbn.length() != ISBN_13_LENGTH) {
+      return NO_NUMERIC_ISBN;
+    }
+
+    long numericIsbn = 0;
+
+    for (int i = 0; i < ISBN_13_LENGTH; i++) {
+      char digit = normalizedIsbn.charAt(i);
+
+      if (digit < '0' || digit > '9') {
+        return NO_NUMERIC_ISBN;
+      }
+
+      numericIsbn = numericIsbn * 10 + (digit - '0');
+    }
+
+    return numericIsbn;
+  }
+
+  private static boolean containsIgnoreCase(String text, String lowerCasedTerm) {
+    for (int i = 0; i + lowerCasedTerm.length() <= text.length(); i++) {
+      if (text.regionMatches(true, i, lowerCasedTerm, 0, lowerCasedTerm.length())) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * The column arrays, replaced together when they are full.
+   * The copy is filled before it is published, so a reader sees every record written before it read the columns.
+   */
+  private static class Columns {
+
+    private long[] numericIsbns;
+    private byte[] genres;
+    private int[] authorIds;
+    private String[] titles;
+
+    private Columns(int capacity) {
+      this.numericIsbns = new long[capacity];
+      this.genres = new byte[capacity];
+      this.authorIds = new int[capacity];
+      this.titles = new String[capacity];
+    }
+
+    private Columns copyOf(int capacity) {
+      Columns columns = new Columns(0);
+      columns.numericIsbns = Arrays.copyOf(this.numericIsbns, capacity);
+      columns.genres = Arrays.copyOf(this.genres, capacity);
+      columns.authorIds = Arrays.copyOf(this.authorIds, capacity);
+      columns.titles = Arrays.copyOf(this.titles, capacity);
+
+      return columns;
+    }
+  }
+
+  /**
+   * Open addressing hash table from numeric ISBN to record number, without boxing.
+   * Lookups and inserts hold the table's monitor for a single probe sequence,
+   * so readers never see a slot or a resize half written.
+   */
+  private static class IsbnTable {
+
+    private static final long EMPTY = -1;
+
+    private long[] keys = newKeys(INITIAL_CAPACITY);
+    private int[] records = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private synchronized int get(long isbn) {
+      for (int slot = this.slotOf(isbn); ; slot = (slot + 1) & (this.keys.length - 1)) {
+        if (this.keys[slot] == EMPTY) {
+          return -1;
+        }
+
+        if (this.keys[slot] == isbn) {
+          return this.records[slot];
+        }
+      }
+    }
+
+    private synchronized void putIfAbsent(long isbn, int record) {
+      if ((this.size + 1) * 2 > this.keys.length) {
+        this.resize();
+      }
+
+      int slot = this.slotOf(isbn);
+
+      while (this.keys[slot] != EMPTY) {
+        if (this.keys[slot] == isbn) {
+          return;
+        }
+
+        slot = (slot + 1) & (this.keys.length - 1);
+      }
+
+      this.keys[slot] = isbn;
+      this.records[slot] = record;
+      this.size++;
+    }
+
+    private int slotOf(long isbn) {
+      long hash = isbn * 0x9e3779b97f4a7c15L;
+
+      return (int) (hash >>> 32) & (this.keys.length - 1);
+    }
+
+    private void resize() {
+      long[] oldKeys = this.keys;
+      int[] oldRecords = this.records;
+
+      this.keys = newKeys(oldKeys.length * 2);
+      this.records = new int[oldKeys.length * 2];
+      this.size = 0;
+
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != EMPTY) {
+          this.putIfAbsent(oldKeys[i], oldRecords[i]);
+        }
+      }
+    }
+
+    private static long[] newKeys(int capacity) {
+      long[] keys = new long[capacity];
+      Arrays.fill(keys, EMPTY);
+
+      return keys;
+    }
+  }
+}
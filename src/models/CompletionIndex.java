@@ -0,0 +1,242 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted set of the distinct titles and authors of the books, used to complete what the user is typing.
+ *
+ * The texts are kept lowercased in sorted arrays, so the completions of a prefix start at the position
+ * found by a binary search and are read in order without visiting the other texts.
+ * The texts added since the arrays were built go to a small skip list, which is merged into new arrays
+ * once it holds a sixteenth of them, so adding a text copies a few array slots on average
+ * and the index keeps two arrays and an id per text instead of a node per text.
+ * The skip list is not checked against the arrays when a text is added, since a binary search over
+ * the arrays would cost more than the insertion, so a text found in both is taken from the arrays.
+ * Each text keeps the id of the first book it appeared in,
+ * so a lookup can leave out the books that are not part of the snapshot it reads.
+ *
+ * Texts are added by one thread at a time while lookups read the index without locking.
+ * The records of a mapped catalog file are added the first time a lookup runs,
+ * so opening the file still doesn't read its records.
+ */
+class CompletionIndex {
+
+  private static final int MIN_MERGE_SIZE = 4096;
+  private static final int MERGE_SHARE = 16;
+
+  private volatile Generation generation = new Generation(
+    new String[0],
+    new String[0],
+    new int[0]
+  );
+  private volatile CatalogSegment unreadSegment;
+
+  /**
+   * This method defers adding the records of a read-only catalog segment until the first lookup.
+   */
+  synchronized void addLater(CatalogSegment segment) {
+    this.unreadSegment = segment;
+  }
+
+  /**
+   * This method adds the title and author of a book that was just registered.
+   */
+  synchronized void add(Book book) {
+    this.addText(book.getSearchableTitle(), book.getTitle(), book.getId());
+    this.addText(book.getSearchableAuthor(), book.getAuthor(), book.getId());
+  }
+
+  /**
+   * This method finds the titles and authors starting with a lowercased prefix, in alphabetical order.
+   * The sorted arrays and the recent texts are read side by side, like the two halves of a merge sort.
+   *
+   * @param lowerCasedPrefix The lowercased prefix.
+   * @param toId The id after the last book that can be completed, the size of the catalog being searched.
+   * @param maxResults The maximum number of texts returned.
+   * @return The texts as they were written in the first book they appeared in.
+   */
+  List<String> complete(String lowerCasedPrefix, int toId, int maxResults) {
+    if (this.unreadSegment != null) {
+      this.readUnreadSegment();
+    }
+
+    Generation generation = this.generation;
+    List<String> foundTexts = new ArrayList<>();
+    int position = generation.firstPositionFrom(lowerCasedPrefix);
+    Iterator<Map.Entry<String, Completion>> recentTexts = generation.recentTexts
+      .tailMap(lowerCasedPrefix)
+      .entrySet()
+      .iterator();
+    Map.Entry<String, Completion> recentText = nextStartingWith(recentTexts, lowerCasedPrefix);
+
+    while (foundTexts.size() < maxResults) {
+      boolean hasSortedText =
+        position < generation.keys.length &&
+        generation.keys[position].startsWith(lowerCasedPrefix);
+      int order = recentText == null
+        ? 1
+        : hasSortedText ? recentText.getKey().compareTo(generation.keys[position]) : -1;
+
+      if (!hasSortedText && recentText == null) {
+        break;
+      }
+
+      if (order < 0) {
+        if (recentText.getValue().firstId < toId) {
+          foundTexts.add(recentText.getValue().text);
+        }
+      } else if (generation.firstIds[position] < toId) {
+        foundTexts.add(generation.texts[position]);
+      }
+
+      if (order <= 0) {
+        recentText = nextStartingWith(recentTexts, lowerCasedPrefix);
+      }
+
+      if (order >= 0) {
+        position++;
+      }
+    }
+
+    return foundTexts;
+  }
+
+  private void addText(String lowerCasedText, String text, int id) {
+    Generation generation = this.generation;
+
+    if (generation.recentTexts.putIfAbsent(lowerCasedText, new Completion(text, id)) == null) {
+      generation.recentTextCount++;
+    }
+
+    if (generation.recentTextCount >= Math.max(MIN_MERGE_SIZE, generation.keys.length / MERGE_SHARE)) {
+      this.generation = generation.merge();
+    }
+  }
+
+  private synchronized void readUnreadSegment() {
+    if (this.unreadSegment == null) {
+      return;
+    }
+
+    for (int record = 0; record < this.unreadSegment.size(); record++) {
+      this.add(this.unreadSegment.readBook(record));
+    }
+
+    this.unreadSegment = null;
+  }
+
+  private static Map.Entry<String, Completion> nextStartingWith(
+    Iterator<Map.Entry<String, Completion>> recentTexts,
+    String lowerCasedPrefix
+  ) {
+    if (!recentTexts.hasNext()) {
+      return null;
+    }
+
+    Map.Entry<String, Completion> recentText = recentTexts.next();
+
+    return recentText.getKey().startsWith(lowerCasedPrefix) ? recentText : null;
+  }
+
+  /**
+   * Sorted arrays of texts with the skip list of the texts added after them.
+   * The arrays are never changed once the generation is published.
+   */
+  private static class Generation {
+
+    private String[] keys;
+    private String[] texts;
+    private int[] firstIds;
+    private ConcurrentSkipListMap<String, Completion> recentTexts = new ConcurrentSkipListMap<>();
+    // Only read and written by the thread adding texts, since the skip list doesn't count its entries cheaply
+    private int recentTextCount;
+
+    private Generation(String[] keys, String[] texts, int[] firstIds) {
+      this.keys = keys;
+      this.texts = texts;
+      this.firstIds = firstIds;
+    }
+
+    /**
+     * This method finds the position of the first key greater than or equal to the given one.
+     */
+    private int firstPositionFrom(String key) {
+      int low = 0;
+      int high = this.keys.length;
+
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+
+        if (this.keys[middle].compareTo(key) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+
+      return low;
+    }
+
+    private Generation merge() {
+      int size = this.keys.length + this.recentTextCount;
+      String[] keys = new String[size];
+      String[] texts = new String[size];
+      int[] firstIds = new int[size];
+      Iterator<Map.Entry<String, Completion>> recentTexts = this.recentTexts.entrySet().iterator();
+      Map.Entry<String, Completion> recentText = recentTexts.hasNext() ? recentTexts.next() : null;
+      int position = 0;
+      int mergedSize = 0;
+
+      while (recentText != null || position < this.keys.length) {
+        int order = recentText == null
+          ? 1
+          : position < this.keys.length ? recentText.getKey().compareTo(this.keys[position]) : -1;
+
+        if (order < 0) {
+          keys[mergedSize] = recentText.getKey();
+          texts[mergedSize] = recentText.getValue().text;
+          firstIds[mergedSize] = recentText.getValue().firstId;
+        } else {
+          keys[mergedSize] = this.keys[position];
+          texts[mergedSize] = this.texts[position];
+          firstIds[mergedSize] = this.firstIds[position];
+        }
+
+        if (order <= 0) {
+          recentText = recentTexts.hasNext() ? recentTexts.next() : null;
+        }
+
+        if (order >= 0) {
+          position++;
+        }
+
+        mergedSize++;
+      }
+
+      // Texts found in both sources were merged once, leaving unused slots at the end
+      if (mergedSize < size) {
+        keys = Arrays.copyOf(keys, mergedSize);
+        texts = Arrays.copyOf(texts, mergedSize);
+        firstIds = Arrays.copyOf(firstIds, mergedSize);
+      }
+
+      return new Generation(keys, texts, firstIds);
+    }
+  }
+
+  private static class Completion {
+
+    private String text;
+    private int firstId;
+
+    private Completion(String text, int firstId) {
+      this.text = text;
+      this.firstId = firstId;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes lists of books and borrowings to the console through one buffered writer,
+ * flushing once per list instead of once per line.
+ *
+ * Each item follows a fixed template whose parts are written field by field,
+ * so no MessageFormat pattern is parsed and no date format is created per item.
+ * The output is the same as the one displayInfo used to print with MessageFormat.
+ */
+public class ConsoleRenderer {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int ITEM_SIZE = 256;
+  private static final String SEPARATOR =
+    "----------------------------------------------------";
+  private static final String[] BOOK_TEMPLATE = {
+    "Título: ",
+    "\nAutor: ",
+    "\nISBN: ",
+    "\nGênero: ",
+    "\nQuantidade disponível: ",
+    "\n",
+  };
+  private static final String[] BORROWING_TEMPLATE = {
+    "Book ISBN: ",
+    "\nBook title: ",
+    "\nBorrower: ",
+    "\nStart Date: ",
+    "\nDevolution Date: ",
+    "\n",
+  };
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(
+    "dd/MM/yyyy"
+  );
+  private static final char GROUPING_SEPARATOR = DecimalFormatSymbols
+    .getInstance(Locale.getDefault(Locale.Category.FORMAT))
+    .getGroupingSeparator();
+
+  /**
+   * This method displays the information of a list of books.
+   *
+   * @param books The books to display.
+   */
+  public static void renderBooks(List<Book> books) {
+    Writer output = ConsoleRenderer.openOutput(books.size());
+
+    try {
+      for (Book book : books) {
+        ConsoleRenderer.writeBook(output, book);
+      }
+
+      output.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * This method displays the information of a list of borrowings.
+   *
+   * @param borrowings The borrowings to display.
+   */
+  public static void renderBorrowings(List<BookBorrowing> borrowings) {
+    Writer output = ConsoleRenderer.openOutput(borrowings.size());
+
+    try {
+      for (BookBorrowing borrowing : borrowings) {
+        ConsoleRenderer.writeBorrowing(output, borrowing);
+      }
+
+      output.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * This method displays the information of a single book.
+   * The book is written to a small string first and printed with one call,
+   * so no console buffer is created for it.
+   */
+  static void renderBook(Book book) {
+    StringWriter output = new StringWriter(ITEM_SIZE);
+
+    try {
+      ConsoleRenderer.writeBook(output, book);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    System.out.print(output);
+  }
+
+  /**
+   * This method displays the information of a single borrowing, the same way renderBook displays a book.
+   */
+  static void renderBorrowing(BookBorrowing borrowing) {
+    StringWriter output = new StringWriter(ITEM_SIZE);
+
+    try {
+      ConsoleRenderer.writeBorrowing(output, borrowing);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    System.out.print(output);
+  }
+
+  /**
+   * This method wraps the current System.out, so output redirected with System.setOut is respected.
+   * System.out is only written when the buffer fills up or is flushed.
+   * The buffer is sized for the number of items, so short lists don't allocate the whole buffer size.
+   */
+  private static Writer openOutput(int itemCount) {
+    return new BufferedWriter(
+      new OutputStreamWriter(System.out, Charset.defaultCharset()),
+      (int) Math.min(BUFFER_SIZE, Math.max(1L, itemCount) * ITEM_SIZE)
+    );
+  }
+
+  private static void writeBook(Writer output, Book book) throws IOException {
+    output.write(SEPARATOR);
+    output.write(System.lineSeparator());
+    output.write(BOOK_TEMPLATE[0]);
+    output.write(book.getTitle());
+    output.write(BOOK_TEMPLATE[1]);
+    output.write(book.getAuthor());
+    output.write(BOOK_TEMPLATE[2]);
+    output.write(book.getIsbn());
+    output.write(BOOK_TEMPLATE[3]);
+    output.write(book.getGenre().toString());
+    output.write(BOOK_TEMPLATE[4]);
+    ConsoleRenderer.writeGrouped(output, book.getQuantityAvailable());
+    output.write(BOOK_TEMPLATE[5]);
+    output.write(System.lineSeparator());
+    output.write(SEPARATOR);
+    output.write(System.lineSeparator());
+  }
+
+  private static void writeBorrowing(Writer output, BookBorrowing borrowing)
+    throws IOException {
+    output.write(SEPARATOR);
+    output.write(System.lineSeparator());
+    output.write(BORROWING_TEMPLATE[0]);
+    output.write(borrowing.getBorrowedBook().getIsbn());
+    output.write(BORROWING_TEMPLATE[1]);
+    output.write(borrowing.getBorrowedBook().getTitle());
+    output.write(BORROWING_TEMPLATE[2]);
+    output.write(borrowing.getBorrower().getUsername());
+    output.write(BORROWING_TEMPLATE[3]);
+    DATE_FORMATTER.formatTo(borrowing.getStartDate(), output);
+    output.write(BORROWING_TEMPLATE[4]);
+    DATE_FORMATTER.formatTo(borrowing.getDevolutionDate(), output);
+    output.write(BORROWING_TEMPLATE[5]);
+    output.write(System.lineSeparator());
+    output.write(SEPARATOR);
+    output.write(System.lineSeparator());
+  }
+
+  /**
+   * This method writes an integer with the grouping separator of the default locale,
+   * the way MessageFormat formats numbers.
+   */
+  private static void writeGrouped(Writer output, int value) throws IOException {
+    String digits = Integer.toString(value);
+    int firstDigit = value < 0 ? 1 : 0;
+
+    if (firstDigit == 1) {
+      output.write('-');
+    }
+
+    for (int i = firstDigit; i < digits.length(); i++) {
+      int remainingDigits = digits.length() - i;
+
+      if (i > firstDigit && remainingDigits % 3 == 0) {
+        output.write(GROUPING_SEPARATOR);
+      }
+
+      output.write(digits.charAt(i));
+    }
+  }
+}
@@ -0,0 +1,470 @@
+package models;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Typo-tolerant index over the words of the lowercased titles and authors of the books.
+ *
+ * Every distinct word is kept once in a BK-tree, where each child is stored under its edit distance
+ * to its parent. A lookup only descends into the children whose distance can lead to a word close enough
+ * to the searched one, so it visits a small part of the dictionary instead of comparing every book.
+ * Each word keeps the ids of the books it appears in, in ascending order.
+ *
+ * Words are added by one thread at a time while lookups read the index without locking.
+ * The records of a mapped catalog file are added the first time a lookup runs,
+ * so opening the file still doesn't read its records.
+ */
+class FuzzyIndex {
+
+  private static final int MAX_DISTANCE = Integer.getInteger(
+    "bookstore.fuzzySearch.maxDistance",
+    2
+  );
+
+  // One typo is tolerated every four letters, so words shorter than four letters must be exact
+  private static final int LETTERS_PER_TYPO = 4;
+
+  private volatile Node root;
+  private Map<String, IdList> idsByWord = new ConcurrentHashMap<>();
+  private volatile CatalogSegment unreadSegment;
+
+  /**
+   * This method defers adding the records of a read-only catalog segment until the first lookup.
+   */
+  synchronized void addLater(CatalogSegment segment) {
+    this.unreadSegment = segment;
+  }
+
+  /**
+   * This method adds the words of the title and author of a book that was just registered.
+   */
+  synchronized void add(Book book) {
+    this.addWords(book.getId(), book.getSearchableTitle());
+    this.addWords(book.getId(), book.getSearchableAuthor());
+  }
+
+  /**
+   * This method finds the books with a word close to every word of a lowercased search term.
+   * A word is close to another one if it can be turned into the other with one edit every four letters,
+   * up to bookstore.fuzzySearch.maxDistance edits (2 by default). An edit inserts, removes or replaces
+   * a character, or swaps two of them, so "tolkein" is one edit away from "tolkien".
+   * The books are ordered by the total number of edits, and by id when they need the same number.
+   *
+   * @param lowerCasedSearchTerm The lowercased search term.
+   * @param toId The id after the last book that can be returned, the size of the catalog being searched.
+   * @param maxResults The maximum number of ids returned.
+   * @return The ids of the closest books.
+   */
+  int[] search(String lowerCasedSearchTerm, int toId, int maxResults) {
+    if (this.unreadSegment != null) {
+      this.readUnreadSegment();
+    }
+
+    List<WordMatch> matches = new ArrayList<>();
+
+    for (String searchedWord : splitWords(lowerCasedSearchTerm)) {
+      int maxDistance = Math.min(MAX_DISTANCE, searchedWord.length() / LETTERS_PER_TYPO);
+      WordMatch match = new WordMatch(
+        this.findCloseWords(searchedWord, maxDistance),
+        this.idsByWord
+      );
+
+      if (match.idLists.length == 0) {
+        return new int[0];
+      }
+
+      matches.add(match);
+    }
+
+    if (matches.isEmpty()) {
+      return new int[0];
+    }
+
+    // The candidates come from the word matching the fewest books, the other words only check them
+    matches.sort((first, second) -> Long.compare(first.postingCount, second.postingCount));
+
+    long[] candidates = matches.get(0).collectIds(toId);
+    int candidateCount = candidates.length;
+
+    for (int i = 1; i < matches.size() && candidateCount > 0; i++) {
+      candidateCount = matches.get(i).keepMatchingIds(candidates, candidateCount);
+    }
+
+    // Orders the candidates by their total number of edits first and by their id next
+    long[] distancesAndIds = new long[candidateCount];
+
+    for (int i = 0; i < candidateCount; i++) {
+      distancesAndIds[i] = (candidates[i] & 0xFFFFFFFFL) << 32 | candidates[i] >>> 32;
+    }
+
+    Arrays.sort(distancesAndIds);
+
+    int[] ids = new int[Math.min(maxResults, candidateCount)];
+
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = (int) distancesAndIds[i];
+    }
+
+    return ids;
+  }
+
+  /**
+   * This method walks the BK-tree collecting the words within maxDistance edits of a word.
+   * By the triangle inequality, a child stored at distance k from a node at distance d from the word
+   * can only lead to close words if k is between d - maxDistance and d + maxDistance.
+   *
+   * @return The close words with their distance to the searched word.
+   */
+  private Map<String, Integer> findCloseWords(String searchedWord, int maxDistance) {
+    Map<String, Integer> closeWords = new HashMap<>();
+    Deque<Node> pendingNodes = new ArrayDeque<>();
+
+    if (this.root != null) {
+      pendingNodes.push(this.root);
+    }
+
+    while (!pendingNodes.isEmpty()) {
+      Node node = pendingNodes.pop();
+      int distance = editDistance(searchedWord, node.word);
+
+      if (distance <= maxDistance) {
+        closeWords.put(node.word, distance);
+      }
+
+      for (int k = Math.max(1, distance - maxDistance); k <= distance + maxDistance; k++) {
+        Node child = node.getChild(k);
+
+        if (child != null) {
+          pendingNodes.push(child);
+        }
+      }
+    }
+
+    return closeWords;
+  }
+
+  private void addWords(int id, String text) {
+    for (String word : splitWords(text)) {
+      IdList ids = this.idsByWord.get(word);
+
+      if (ids == null) {
+        ids = new IdList();
+        // The ids are mapped before the word enters the tree, so a lookup finding the word always finds its ids
+        this.idsByWord.put(word, ids);
+        this.insertWord(word);
+      }
+
+      if (ids.size() == 0 || ids.get(ids.size() - 1) != id) {
+        ids.add(id);
+      }
+    }
+  }
+
+  private void insertWord(String word) {
+    if (this.root == null) {
+      this.root = new Node(word);
+      return;
+    }
+
+    Node node = this.root;
+
+    while (true) {
+      int distance = editDistance(word, node.word);
+      Node child = node.getChild(distance);
+
+      if (child == null) {
+        node.addChild(distance, new Node(word));
+        return;
+      }
+
+      node = child;
+    }
+  }
+
+  private synchronized void readUnreadSegment() {
+    if (this.unreadSegment == null) {
+      return;
+    }
+
+    // The books added since the file was opened have higher ids than its records, so their ids go after them
+    Map<String, IdList> idsAddedLater = new HashMap<>(this.idsByWord);
+    this.idsByWord.replaceAll((word, ids) -> new IdList());
+
+    for (int record = 0; record < this.unreadSegment.size(); record++) {
+      this.add(this.unreadSegment.readBook(record));
+    }
+
+    idsAddedLater.forEach((word, ids) -> this.idsByWord.get(word).addAll(ids));
+
+    this.unreadSegment = null;
+  }
+
+  private static List<String> splitWords(String text) {
+    List<String> words = new ArrayList<>();
+    int wordStart = -1;
+
+    for (int i = 0; i <= text.length(); i++) {
+      boolean isWordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+      if (isWordCharacter && wordStart < 0) {
+        wordStart = i;
+      } else if (!isWordCharacter && wordStart >= 0) {
+        words.add(text.substring(wordStart, i));
+        wordStart = -1;
+      }
+    }
+
+    return words;
+  }
+
+  /**
+   * This method computes the Damerau-Levenshtein distance between two words: the number of characters
+   * to insert, remove or replace, or pairs of characters to swap, to turn one word into the other.
+   * Unlike the distance that only swaps adjacent characters once, this one is a metric, which the BK-tree relies on.
+   * The table is kept in a single array, row after row, with an extra row and column for swaps.
+   */
+  private static int editDistance(String first, String second) {
+    int columns = second.length() + 2;
+    int unreachable = first.length() + second.length();
+    int[] distances = new int[(first.length() + 2) * columns];
+
+    distances[0] = unreachable;
+
+    for (int i = 0; i <= first.length(); i++) {
+      distances[(i + 1) * columns] = unreachable;
+      distances[(i + 1) * columns + 1] = i;
+    }
+
+    for (int j = 0; j <= second.length(); j++) {
+      distances[j + 1] = unreachable;
+      distances[columns + j + 1] = j;
+    }
+
+    for (int i = 1; i <= first.length(); i++) {
+      int lastMatchingColumn = 0;
+
+      for (int j = 1; j <= second.length(); j++) {
+        int swapRow = lastRowOf(first, second.charAt(j - 1), i);
+        int swapColumn = lastMatchingColumn;
+        int replacementCost = 1;
+
+        if (first.charAt(i - 1) == second.charAt(j - 1)) {
+          replacementCost = 0;
+          lastMatchingColumn = j;
+        }
+
+        distances[(i + 1) * columns + j + 1] =
+          Math.min(
+            Math.min(
+              distances[i * columns + j] + replacementCost,
+              Math.min(distances[(i + 1) * columns + j], distances[i * columns + j + 1]) + 1
+            ),
+            distances[swapRow * columns + swapColumn] +
+            (i - swapRow - 1) +
+            1 +
+            (j - swapColumn - 1)
+          );
+      }
+    }
+
+    return distances[(first.length() + 1) * columns + second.length() + 1];
+  }
+
+  /**
+   * This method finds the last row before the given one whose character of the first word is the given character.
+   *
+   * @return The row, or 0 if the character doesn't appear before it.
+   */
+  private static int lastRowOf(String first, char character, int beforeRow) {
+    for (int row = beforeRow - 1; row >= 1; row--) {
+      if (first.charAt(row - 1) == character) {
+        return row;
+      }
+    }
+
+    return 0;
+  }
+
+  /**
+   * Word of the BK-tree, with its children indexed by their distance to it.
+   * A child is added by replacing the array with a copy holding it, so readers never see a half-built array.
+   */
+  private static class Node {
+
+    private String word;
+    private volatile Node[] children = new Node[0];
+
+    private Node(String word) {
+      this.word = word;
+    }
+
+    private Node getChild(int distance) {
+      Node[] children = this.children;
+
+      return distance < children.length ? children[distance] : null;
+    }
+
+    private void addChild(int distance, Node child) {
+      Node[] children = Arrays.copyOf(
+        this.children,
+        Math.max(this.children.length, distance + 1)
+      );
+      children[distance] = child;
+      this.children = children;
+    }
+  }
+
+  /**
+   * Words close to one searched word, with the ids of the books each of them appears in.
+   * A candidate is kept in a long, with the book id in the upper half and its number of edits in the lower half.
+   */
+  private static class WordMatch {
+
+    private IdList[] idLists;
+    private int[] sizes;
+    private int[] distances;
+    private long postingCount;
+
+    private WordMatch(Map<String, Integer> closeWords, Map<String, IdList> idsByWord) {
+      this.idLists = new IdList[closeWords.size()];
+      this.sizes = new int[closeWords.size()];
+      this.distances = new int[closeWords.size()];
+      int index = 0;
+
+      for (Map.Entry<String, Integer> closeWord : closeWords.entrySet()) {
+        this.idLists[index] = idsByWord.get(closeWord.getKey());
+        this.distances[index] = closeWord.getValue();
+        // Books added later are left out, so the candidates fit in an array of postingCount
+        this.sizes[index] = this.idLists[index].size();
+        this.postingCount += this.sizes[index];
+        index++;
+      }
+    }
+
+    /**
+     * This method lists the books below toId with one of the words, each with the fewest edits among its words.
+     *
+     * @return The candidates ordered by id.
+     */
+    private long[] collectIds(int toId) {
+      long[] candidates = new long[(int) this.postingCount];
+      int candidateCount = 0;
+
+      for (int i = 0; i < this.idLists.length; i++) {
+        candidateCount = this.idLists[i].copyTo(
+          candidates,
+          candidateCount,
+          this.sizes[i],
+          toId,
+          this.distances[i]
+        );
+      }
+
+      // Sorting puts the fewest edits first among the candidates of the same book, so only that one is kept
+      Arrays.sort(candidates, 0, candidateCount);
+
+      int uniqueCount = 0;
+
+      for (int i = 0; i < candidateCount; i++) {
+        if (uniqueCount == 0 || candidates[i] >>> 32 != candidates[uniqueCount - 1] >>> 32) {
+          candidates[uniqueCount++] = candidates[i];
+        }
+      }
+
+      return Arrays.copyOf(candidates, uniqueCount);
+    }
+
+    /**
+     * This method keeps the candidates with one of the words at the start of the array,
+     * adding the fewest edits among their words to the edits they already have.
+     *
+     * @return The number of candidates kept.
+     */
+    private int keepMatchingIds(long[] candidates, int candidateCount) {
+      int keptCount = 0;
+
+      for (int i = 0; i < candidateCount; i++) {
+        int id = (int) (candidates[i] >>> 32);
+        int distance = Integer.MAX_VALUE;
+
+        for (int j = 0; j < this.idLists.length; j++) {
+          if (this.distances[j] < distance && this.idLists[j].contains(id)) {
+            distance = this.distances[j];
+          }
+        }
+
+        if (distance != Integer.MAX_VALUE) {
+          candidates[keptCount++] = candidates[i] + distance;
+        }
+      }
+
+      return keptCount;
+    }
+  }
+
+  /**
+   * Append-only list of book ids, read without locking like AppendOnlyList but without boxing.
+   */
+  private static class IdList {
+
+    private volatile int[] ids = new int[1];
+    private volatile int size;
+
+    private void add(int id) {
+      int[] ids = this.ids;
+
+      if (this.size == ids.length) {
+        ids = Arrays.copyOf(ids, ids.length * 2);
+        this.ids = ids;
+      }
+
+      ids[this.size] = id;
+      this.size++;
+    }
+
+    private void addAll(IdList other) {
+      for (int i = 0; i < other.size(); i++) {
+        this.add(other.get(i));
+      }
+    }
+
+    private int get(int index) {
+      return this.ids[index];
+    }
+
+    /**
+     * This method copies the first ids below toId into an array of candidates, as longs holding the id and a distance.
+     * The size must have been read from the list before, so the array read afterwards holds that many ids.
+     *
+     * @return The number of candidates in the array after the copied ones.
+     */
+    private int copyTo(long[] candidates, int candidateCount, int size, int toId, int distance) {
+      int[] ids = this.ids;
+
+      for (int i = 0; i < size && ids[i] < toId; i++) {
+        candidates[candidateCount++] = (long) ids[i] << 32 | distance;
+      }
+
+      return candidateCount;
+    }
+
+    private boolean contains(int id) {
+      // The size is read before the array, so the array always holds that many ids
+      int size = this.size;
+      int[] ids = this.ids;
+
+      return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    private int size() {
+      return this.size;
+    }
+  }
+}
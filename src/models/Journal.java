@@ -0,0 +1,747 @@
+package models;
+
+import enums.Genre;
+import enums.UserType;
+import exceptions.EntityNotFoundException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Redo log of every change of users, books and borrowings, with snapshots of the whole state.
+ *
+ * A change is applied in memory first and its record is logged right after, and the operation
+ * only returns once the record is on disk. It is not a write-ahead log: other threads can see a change
+ * before its record is on disk, and such a change is lost if the process stops before the record is flushed.
+ *
+ * Records are appended to a queue and a single writer thread drains it,
+ * writing every queued record before one fsync (group commit), so concurrent
+ * operations share the cost of flushing the log. After a number of records
+ * the log is rotated to a numbered file and a compact snapshot of the whole state is written,
+ * which keeps recovery time bounded by the snapshot size and the log tail.
+ *
+ * Changes hold the read side of a lock from the moment they are applied until their records are queued,
+ * and a snapshot captures the state and queues the rotation while holding the write side.
+ * So a snapshot holds exactly the changes logged before its rotation, and records its rotation number.
+ * Recovery loads the snapshot and replays the rotated logs with a greater number and then the current log.
+ * A rotated log is only deleted once a snapshot holding it is on disk, so a failed snapshot loses nothing:
+ * the next rotation gets the next number and recovery replays both rotated logs.
+ * Since no record is replayed over a state that already holds it, stock changes are logged as deltas,
+ * which give the same stock in whatever order concurrent changes of a book reach the log.
+ *
+ * When a mapped catalog file is used, it must be opened before the journal,
+ * since the snapshot only keeps the quantities of the books read from it.
+ */
+public class Journal {
+
+  private static final byte BOOK_CREATED = 1;
+  private static final byte QUANTITY_ADDED = 2;
+  private static final byte USER_CREATED = 3;
+  private static final byte BOOK_BORROWED = 4;
+  private static final byte BOOK_RETURNED = 5;
+
+  private static final int SNAPSHOT_MAGIC = 0x424b5354;
+  private static final int SNAPSHOT_VERSION = 1;
+  private static final long RECORDS_BETWEEN_SNAPSHOTS = 100_000;
+  private static final String LOG_FILE = "journal.log";
+  private static final String ROTATED_LOG_PREFIX = "journal.log.";
+  private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+  private static final CompletableFuture<Void> NOT_LOGGED = CompletableFuture.completedFuture(
+    null
+  );
+
+  private static volatile Journal openJournal;
+  private static volatile boolean isRecovering;
+
+  private Path directory;
+  private FileChannel log;
+  private BlockingQueue<PendingRecord> pendingRecords = new LinkedBlockingQueue<>();
+  private long recordsSinceSnapshot;
+  private long lastRotation;
+  private ReadWriteLock changeLock = new ReentrantReadWriteLock();
+  private AtomicBoolean isSnapshotScheduled = new AtomicBoolean();
+  private ExecutorService snapshotter = Executors.newSingleThreadExecutor(
+    runnable -> createDaemonThread(runnable, "journal-snapshotter")
+  );
+
+  private Journal(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * This method recovers the state saved in a data directory and starts logging every mutation to it.
+   * It must be called before any user, book or borrowing is created.
+   *
+   * @param directory The directory holding the log and the snapshot.
+   * @throws IOException If the directory can't be read or written.
+   */
+  public static synchronized void open(Path directory) throws IOException {
+    if (Journal.openJournal != null) {
+      throw new IllegalStateException("The journal is already open");
+    }
+
+    Files.createDirectories(directory);
+    Journal journal = new Journal(directory);
+
+    Journal.isRecovering = true;
+
+    try {
+      long snapshotRotation = journal.loadSnapshot();
+      journal.lastRotation = snapshotRotation;
+
+      for (Map.Entry<Long, Path> rotatedLog : journal.findRotatedLogs().entrySet()) {
+        // Logs already held by the snapshot are left for the next snapshot to delete
+        if (rotatedLog.getKey() > snapshotRotation) {
+          journal.replay(rotatedLog.getValue());
+        }
+
+        journal.lastRotation = Math.max(journal.lastRotation, rotatedLog.getKey());
+      }
+
+      long validLength = journal.replay(directory.resolve(LOG_FILE));
+
+      journal.log = journal.openLog();
+      journal.log.truncate(validLength);
+      journal.log.position(validLength);
+    } finally {
+      Journal.isRecovering = false;
+    }
+
+    createDaemonThread(journal::writeRecords, "journal-writer").start();
+    Journal.openJournal = journal;
+
+    journal.takeSnapshot();
+  }
+
+  /**
+   * This method rotates the log and writes a snapshot of all users, books and borrowings.
+   * Once the snapshot is safely on disk the rotated logs it holds are deleted.
+   *
+   * @throws IOException If the snapshot can't be written.
+   */
+  public static void snapshot() throws IOException {
+    Journal journal = Journal.openJournal;
+
+    if (journal != null) {
+      journal.takeSnapshot();
+    }
+  }
+
+  static CompletableFuture<Void> logBookCreated(Book book) {
+    return append(
+      BOOK_CREATED,
+      record -> {
+        record.writeInt(book.getId());
+        writeBook(record, book, book.getQuantityAvailable());
+      }
+    );
+  }
+
+  /**
+   * This method logs copies added to or, with a negative number, removed from the stock of a book.
+   */
+  static CompletableFuture<Void> logQuantityAdded(Book book, int addedCopies) {
+    return append(
+      QUANTITY_ADDED,
+      record -> {
+        record.writeInt(book.getId());
+        record.writeInt(addedCopies);
+      }
+    );
+  }
+
+  static CompletableFuture<Void> logUserCreated(User user) {
+    return append(USER_CREATED, record -> writeUser(record, user));
+  }
+
+  static CompletableFuture<Void> logBookBorrowed(BookBorrowing borrowing) {
+    return append(BOOK_BORROWED, record -> writeBorrowing(record, borrowing));
+  }
+
+  static CompletableFuture<Void> logBookReturned(BookBorrowing borrowing) {
+    return append(BOOK_RETURNED, record -> record.writeLong(borrowing.getId()));
+  }
+
+  /**
+   * This method must be called before applying a change that is logged, and endChange once the change
+   * is applied and its records are queued, so no snapshot is taken in between.
+   * The records must be waited for after endChange, so snapshots don't wait for the disk.
+   *
+   * @return The journal to pass to endChange, or null if changes are not being logged.
+   */
+  static Journal beginChange() {
+    Journal journal = Journal.openJournal;
+
+    if (journal != null) {
+      journal.changeLock.readLock().lock();
+    }
+
+    return journal;
+  }
+
+  static void endChange(Journal journal) {
+    if (journal != null) {
+      journal.changeLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * This method encodes a record and queues it for the writer thread.
+   *
+   * @return A future completed once the record is flushed to disk.
+   */
+  private static CompletableFuture<Void> append(byte type, RecordWriter writer) {
+    Journal journal = Journal.openJournal;
+
+    if (journal == null || Journal.isRecovering) {
+      return NOT_LOGGED;
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try (DataOutputStream record = new DataOutputStream(bytes)) {
+      record.writeByte(type);
+      writer.write(record);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    PendingRecord pendingRecord = new PendingRecord(bytes.toByteArray());
+    journal.pendingRecords.add(pendingRecord);
+
+    return pendingRecord.flushed;
+  }
+
+  /**
+   * This method is the loop of the writer thread.
+   * It takes every record queued since the last flush, writes them all and syncs the log once.
+   * A rotation request flushes the records queued before it and then switches to a new log file.
+   */
+  private void writeRecords() {
+    List<PendingRecord> batch = new ArrayList<>();
+
+    while (true) {
+      try {
+        batch.add(this.pendingRecords.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      this.pendingRecords.drainTo(batch);
+
+      List<PendingRecord> written = new ArrayList<>(batch.size());
+
+      try {
+        for (PendingRecord pendingRecord : batch) {
+          if (pendingRecord.payload == null) {
+            this.flush(written);
+            this.rotate(pendingRecord.rotation);
+            pendingRecord.flushed.complete(null);
+          } else {
+            this.write(pendingRecord.payload);
+            written.add(pendingRecord);
+          }
+        }
+
+        this.flush(written);
+      } catch (IOException e) {
+        for (PendingRecord pendingRecord : batch) {
+          pendingRecord.flushed.completeExceptionally(e);
+        }
+      }
+
+      batch.clear();
+
+      if (
+        this.recordsSinceSnapshot >= RECORDS_BETWEEN_SNAPSHOTS &&
+        this.isSnapshotScheduled.compareAndSet(false, true)
+      ) {
+        this.snapshotter.execute(() -> {
+            try {
+              this.takeSnapshot();
+            } catch (IOException e) {
+              System.err.println("The journal snapshot failed: " + e.getMessage());
+            } finally {
+              this.isSnapshotScheduled.set(false);
+            }
+          });
+      }
+    }
+  }
+
+  private void write(byte[] payload) throws IOException {
+    CRC32 checksum = new CRC32();
+    checksum.update(payload);
+
+    ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES * 2 + payload.length);
+    frame.putInt(payload.length);
+    frame.putInt((int) checksum.getValue());
+    frame.put(payload);
+    frame.flip();
+
+    while (frame.hasRemaining()) {
+      this.log.write(frame);
+    }
+  }
+
+  private void flush(List<PendingRecord> written) throws IOException {
+    if (written.isEmpty()) {
+      return;
+    }
+
+    this.log.force(false);
+    this.recordsSinceSnapshot += written.size();
+
+    for (PendingRecord pendingRecord : written) {
+      pendingRecord.flushed.complete(null);
+    }
+
+    written.clear();
+  }
+
+  /**
+   * This method renames the log after the number of the rotation and starts a new one.
+   * The number was never used before, so no rotated log is ever replaced.
+   * The log is closed before it is renamed, since some systems can't rename an open file,
+   * and opened again even if the rename fails, so later records are still appended to it.
+   */
+  private void rotate(long rotation) throws IOException {
+    this.log.close();
+
+    try {
+      Files.move(
+        this.directory.resolve(LOG_FILE),
+        this.directory.resolve(ROTATED_LOG_PREFIX + rotation)
+      );
+    } finally {
+      this.log = this.openLog();
+    }
+
+    this.recordsSinceSnapshot = 0;
+  }
+
+  /**
+   * This method opens the log for appending, creating it if it doesn't exist.
+   */
+  private FileChannel openLog() throws IOException {
+    FileChannel log = FileChannel.open(
+      this.directory.resolve(LOG_FILE),
+      StandardOpenOption.CREATE,
+      StandardOpenOption.WRITE
+    );
+    log.position(log.size());
+
+    return log;
+  }
+
+  /**
+   * This method captures the state and rotates the log through the writer thread, between two changes,
+   * so the snapshot holds exactly the records of the logs rotated so far.
+   * Only the capture blocks changes: the snapshot is written once they can go on.
+   */
+  private synchronized void takeSnapshot() throws IOException {
+    long rotation = this.lastRotation + 1;
+    PendingRecord rotationRecord = new PendingRecord(null);
+    rotationRecord.rotation = rotation;
+    State state;
+
+    this.changeLock.writeLock().lock();
+
+    try {
+      this.pendingRecords.add(rotationRecord);
+      state = new State();
+    } finally {
+      this.changeLock.writeLock().unlock();
+    }
+
+    rotationRecord.flushed.join();
+    this.lastRotation = rotation;
+
+    Path snapshotPath = this.directory.resolve(SNAPSHOT_FILE);
+    Path temporaryPath = this.directory.resolve(SNAPSHOT_FILE + ".tmp");
+
+    try (
+      FileOutputStream file = new FileOutputStream(temporaryPath.toFile());
+      DataOutputStream snapshot = new DataOutputStream(
+        new BufferedOutputStream(file)
+      )
+    ) {
+      snapshot.writeInt(SNAPSHOT_MAGIC);
+      snapshot.writeInt(SNAPSHOT_VERSION);
+      snapshot.writeLong(rotation);
+      snapshot.writeInt(state.users.size());
+
+      for (User user : state.users) {
+        writeUser(snapshot, user);
+      }
+
+      snapshot.writeInt(state.books.size());
+
+      for (int i = 0; i < state.books.size(); i++) {
+        writeBook(snapshot, state.books.get(i), state.quantities[i]);
+      }
+
+      // Books of the mapped catalog file only change through their quantities
+      snapshot.writeInt(state.catalogBooks.size());
+
+      for (int i = 0; i < state.catalogBooks.size(); i++) {
+        snapshot.writeInt(state.catalogBooks.get(i).getId());
+        snapshot.writeInt(state.catalogQuantities[i]);
+      }
+
+      snapshot.writeInt(state.borrowings.size());
+
+      for (BookBorrowing borrowing : state.borrowings) {
+        writeBorrowing(snapshot, borrowing);
+      }
+
+      snapshot.flush();
+      file.getChannel().force(true);
+    }
+
+    Files.move(
+      temporaryPath,
+      snapshotPath,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE
+    );
+
+    for (Map.Entry<Long, Path> rotatedLog : this.findRotatedLogs().entrySet()) {
+      if (rotatedLog.getKey() <= rotation) {
+        Files.delete(rotatedLog.getValue());
+      }
+    }
+  }
+
+  /**
+   * This method finds the rotated logs of the data directory.
+   *
+   * @return The paths of the rotated logs by rotation number, in increasing order.
+   */
+  private Map<Long, Path> findRotatedLogs() throws IOException {
+    Map<Long, Path> rotatedLogs = new TreeMap<>();
+
+    try (Stream<Path> files = Files.list(this.directory)) {
+      files.forEach(file -> {
+        String name = file.getFileName().toString();
+
+        if (
+          name.startsWith(ROTATED_LOG_PREFIX) &&
+          name.length() > ROTATED_LOG_PREFIX.length() &&
+          name.chars().skip(ROTATED_LOG_PREFIX.length()).allMatch(Character::isDigit)
+        ) {
+          rotatedLogs.put(
+            Long.parseLong(name.substring(ROTATED_LOG_PREFIX.length())),
+            file
+          );
+        }
+      });
+    }
+
+    return rotatedLogs;
+  }
+
+  /**
+   * This method loads the snapshot of the data directory, if there is one.
+   *
+   * @return The number of the last rotation held by the snapshot, or 0 if there is none.
+   */
+  private long loadSnapshot() throws IOException {
+    Path snapshotPath = this.directory.resolve(SNAPSHOT_FILE);
+
+    if (!Files.exists(snapshotPath)) {
+      return 0;
+    }
+
+    try (
+      DataInputStream snapshot = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshotPath))
+      )
+    ) {
+      int magic = snapshot.readInt();
+      int version = snapshot.readInt();
+
+      if (magic != SNAPSHOT_MAGIC || version != SNAPSHOT_VERSION) {
+        throw new IOException("Unknown snapshot format in " + snapshotPath);
+      }
+
+      long rotation = snapshot.readLong();
+      int userCount = snapshot.readInt();
+
+      for (int i = 0; i < userCount; i++) {
+        readUser(snapshot);
+      }
+
+      int bookCount = snapshot.readInt();
+      List<Book> books = new ArrayList<>(bookCount);
+
+      for (int i = 0; i < bookCount; i++) {
+        books.add(readBook(snapshot));
+      }
+
+      Book.registerAll(books);
+
+      int catalogBookCount = snapshot.readInt();
+
+      for (int i = 0; i < catalogBookCount; i++) {
+        Book book = Book.getById(snapshot.readInt());
+        int quantity = snapshot.readInt();
+
+        if (book != null) {
+          book.setQuantityAvailable(quantity);
+        }
+      }
+
+      int borrowingCount = snapshot.readInt();
+
+      for (int i = 0; i < borrowingCount; i++) {
+        readBorrowing(snapshot, false);
+      }
+
+      return rotation;
+    }
+  }
+
+  /**
+   * This method replays the records of a log file until its end or until a torn or corrupted record.
+   *
+   * @return The length of the valid prefix of the log.
+   */
+  private long replay(Path logPath) throws IOException {
+    if (!Files.exists(logPath)) {
+      return 0;
+    }
+
+    long validLength = 0;
+
+    try (
+      DataInputStream log = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(logPath))
+      )
+    ) {
+      while (true) {
+        byte[] payload;
+
+        try {
+          int length = log.readInt();
+          int expectedChecksum = log.readInt();
+          payload = log.readNBytes(length);
+
+          CRC32 checksum = new CRC32();
+          checksum.update(payload);
+
+          if (
+            payload.length != length ||
+            (int) checksum.getValue() != expectedChecksum
+          ) {
+            break;
+          }
+        } catch (EOFException e) {
+          break;
+        }
+
+        this.apply(
+            new DataInputStream(new ByteArrayInputStream(payload))
+          );
+        validLength += Integer.BYTES * 2 + payload.length;
+      }
+    }
+
+    return validLength;
+  }
+
+  private void apply(DataInputStream record) throws IOException {
+    switch (record.readByte()) {
+      case BOOK_CREATED -> {
+        int id = record.readInt();
+        Book book = readBook(record);
+
+        if (id >= Book.getCatalogSize()) {
+          Book.registerAll(List.of(book));
+        }
+      }
+      case QUANTITY_ADDED -> {
+        Book book = Book.getById(record.readInt());
+        int addedCopies = record.readInt();
+
+        if (book != null) {
+          book.addCopies(addedCopies);
+        }
+      }
+      case USER_CREATED -> readUser(record);
+      case BOOK_BORROWED -> readBorrowing(record, true);
+      case BOOK_RETURNED -> {
+        BookBorrowing borrowing = BookBorrowing.findById(record.readLong());
+
+        if (borrowing != null) {
+          try {
+            borrowing.returnBook();
+          } catch (EntityNotFoundException e) {
+            // Already returned, which is what the record says
+          }
+        }
+      }
+      default -> throw new IOException("Unknown journal record type");
+    }
+  }
+
+  private static void writeBook(
+    DataOutputStream output,
+    Book book,
+    int quantityAvailable
+  ) throws IOException {
+    output.writeUTF(book.getGenre().name());
+    output.writeUTF(book.getIsbn());
+    output.writeUTF(book.getTitle());
+    output.writeUTF(book.getAuthor());
+    output.writeInt(quantityAvailable);
+  }
+
+  private static Book readBook(DataInputStream input) throws IOException {
+    return Book.createUnregistered(
+      Genre.valueOf(input.readUTF()),
+      input.readUTF(),
+      input.readUTF(),
+      input.readUTF(),
+      input.readInt()
+    );
+  }
+
+  private static void writeUser(DataOutputStream output, User user)
+    throws IOException {
+    output.writeUTF(user.getUsername());
+    output.writeUTF(user.getPassword());
+    output.writeUTF(user.getType().name());
+  }
+
+  private static void readUser(DataInputStream input) throws IOException {
+    String username = input.readUTF();
+    String password = input.readUTF();
+    UserType type = UserType.valueOf(input.readUTF());
+
+    if (!User.existsByUsername(username)) {
+      new User(username, password, type);
+    }
+  }
+
+  private static void writeBorrowing(
+    DataOutputStream output,
+    BookBorrowing borrowing
+  ) throws IOException {
+    output.writeLong(borrowing.getId());
+    output.writeInt(borrowing.getBorrowedBook().getId());
+    output.writeUTF(borrowing.getBorrower().getUsername());
+    output.writeLong(borrowing.getStartDay());
+    output.writeLong(borrowing.getDevolutionDay());
+  }
+
+  /**
+   * This method restores a borrowing unless it is already active.
+   *
+   * @param takesCopy Whether the borrowing still has to take its copy out of the stock,
+   *        which is the case for logged borrowings but not for the ones in a snapshot.
+   */
+  private static void readBorrowing(DataInputStream input, boolean takesCopy)
+    throws IOException {
+    long id = input.readLong();
+    Book borrowedBook = Book.getById(input.readInt());
+    String username = input.readUTF();
+    long startDay = input.readLong();
+    long devolutionDay = input.readLong();
+
+    if (borrowedBook == null || BookBorrowing.findById(id) != null) {
+      return;
+    }
+
+    try {
+      new BookBorrowing(
+        id,
+        borrowedBook,
+        User.getUserByUsername(username),
+        startDay,
+        devolutionDay,
+        takesCopy
+      );
+    } catch (EntityNotFoundException e) {
+      throw new IOException("The journal references the unknown user " + username);
+    }
+  }
+
+  private static Thread createDaemonThread(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+
+    return thread;
+  }
+
+  @FunctionalInterface
+  private interface RecordWriter {
+    void write(DataOutputStream record) throws IOException;
+  }
+
+  /**
+   * Record waiting for the writer thread, or a rotation request if it has no payload.
+   */
+  private static class PendingRecord {
+
+    private byte[] payload;
+    private long rotation;
+    private CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+    private PendingRecord(byte[] payload) {
+      this.payload = payload;
+    }
+  }
+
+  /**
+   * Copy of the state captured for a snapshot, with the quantities the books had at that moment,
+   * since the Book objects keep changing while the snapshot is written.
+   */
+  private static class State {
+
+    private List<User> users = User.getAllUsers();
+    private List<Book> books = Book.getCreatedBooks();
+    private int[] quantities = quantitiesOf(this.books);
+    private List<Book> catalogBooks = Book.getMaterializedCatalogBooks();
+    private int[] catalogQuantities = quantitiesOf(this.catalogBooks);
+    private List<BookBorrowing> borrowings = BookBorrowing.getAllBorrowings();
+
+    private static int[] quantitiesOf(List<Book> books) {
+      int[] quantities = new int[books.size()];
+
+      for (int i = 0; i < books.size(); i++) {
+        quantities[i] = books.get(i).getQuantityAvailable();
+      }
+
+      return quantities;
+    }
+  }
+}
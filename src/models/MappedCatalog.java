@@ -0,0 +1,384 @@
+package models;
+
+import enums.Genre;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only binary catalog opened with FileChannel.map.
+ *
+ * The file holds a header, one fixed-size record per book, the record numbers
+ * sorted by normalized ISBN and a pool of deduplicated UTF-8 strings, each
+ * prefixed with its length. Opening a catalog only reads the header; records
+ * and strings are read from the mapped region when a query touches them, and a
+ * Book object is only created for the records a query returns.
+ */
+class MappedCatalog implements CatalogSegment {
+
+  private static final int MAGIC = 0x424b434d;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 32;
+  private static final int RECORD_SIZE = 36;
+
+  private static final int QUANTITY = 0;
+  private static final int GENRE = 4;
+  private static final int ISBN = 8;
+  private static final int TITLE = 12;
+  private static final int AUTHOR = 16;
+  private static final int SEARCHABLE_ISBN = 20;
+  private static final int SEARCHABLE_TITLE = 24;
+  private static final int SEARCHABLE_AUTHOR = 28;
+  private static final int NORMALIZED_ISBN = 32;
+
+  private static final Genre[] GENRES = Genre.values();
+
+  private MappedByteBuffer data;
+  private int recordCount;
+  private int recordsOffset;
+  private int isbnIndexOffset;
+  private int poolOffset;
+  private Map<Integer, Book> materializedBooks = new ConcurrentHashMap<>();
+
+  private MappedCatalog(MappedByteBuffer data) throws IOException {
+    this.data = data;
+
+    if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+      throw new IOException("Unknown catalog format");
+    }
+
+    this.recordCount = data.getInt(8);
+    this.recordsOffset = data.getInt(12);
+    this.isbnIndexOffset = data.getInt(16);
+    this.poolOffset = data.getInt(20);
+  }
+
+  /**
+   * This method maps a catalog file into memory without reading its records.
+   *
+   * @param path The path of the catalog file.
+   * @return The mapped catalog.
+   * @throws IOException If the file can't be mapped or has an unknown format.
+   */
+  static MappedCatalog open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new MappedCatalog(
+        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+      );
+    }
+  }
+
+  /**
+   * This method writes books to a catalog file, deduplicating their strings.
+   * The whole file must fit in 2GB, the limit of a single mapped region.
+   *
+   * @param path The path of the catalog file.
+   * @param books The books to be written, in id order.
+   * @throws IOException If the file can't be written.
+   */
+  static void write(Path path, List<Book> books) throws IOException {
+    ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    Map<String, Integer> poolOffsets = new HashMap<>();
+    ByteBuffer records = ByteBuffer.allocate(books.size() * RECORD_SIZE);
+    String[] normalizedIsbns = new String[books.size()];
+
+    for (int i = 0; i < books.size(); i++) {
+      Book book = books.get(i);
+      normalizedIsbns[i] = Book.normalizeIsbn(book.getIsbn());
+
+      records.putInt(book.getQuantityAvailable());
+      records.putInt(book.getGenre().ordinal());
+      records.putInt(pooled(book.getIsbn(), pool, poolOffsets));
+      records.putInt(pooled(book.getTitle(), pool, poolOffsets));
+      records.putInt(pooled(book.getAuthor(), pool, poolOffsets));
+      records.putInt(pooled(book.getSearchableIsbn(), pool, poolOffsets));
+      records.putInt(pooled(book.getSearchableTitle(), pool, poolOffsets));
+      records.putInt(pooled(book.getSearchableAuthor(), pool, poolOffsets));
+      records.putInt(pooled(normalizedIsbns[i], pool, poolOffsets));
+    }
+
+    // Stable sort, so the first book with an ISBN stays first in the index
+    Integer[] isbnIndex = new Integer[books.size()];
+    Arrays.setAll(isbnIndex, i -> i);
+    Arrays.sort(
+      isbnIndex,
+      Comparator.comparing(
+        (Integer record) -> normalizedIsbns[record],
+        MappedCatalog::compareUtf8
+      )
+    );
+
+    int isbnIndexOffset = HEADER_SIZE + records.capacity();
+    int poolOffset = isbnIndexOffset + books.size() * Integer.BYTES;
+
+    try (
+      FileOutputStream file = new FileOutputStream(path.toFile());
+      DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(file)
+      )
+    ) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(books.size());
+      output.writeInt(HEADER_SIZE);
+      output.writeInt(isbnIndexOffset);
+      output.writeInt(poolOffset);
+      output.write(new byte[HEADER_SIZE - 6 * Integer.BYTES]);
+      output.write(records.array());
+
+      for (Integer record : isbnIndex) {
+        output.writeInt(record);
+      }
+
+      pool.writeTo(output);
+      output.flush();
+      file.getChannel().force(true);
+    }
+  }
+
+  @Override
+  public int size() {
+    return this.recordCount;
+  }
+
+  /**
+   * This method retrieves the book of a record, creating it the first time it is requested.
+   * Later quantity changes are kept in the Book object, the mapped file is never written.
+   */
+  @Override
+  public Book getBook(int record) {
+    return this.materializedBooks.computeIfAbsent(
+        record,
+        key ->
+          this.readMappedBook(
+              key,
+              this.data.getInt(this.recordPosition(key) + QUANTITY)
+            )
+      );
+  }
+
+  @Override
+  public List<Book> getMaterializedBooks() {
+    return List.copyOf(this.materializedBooks.values());
+  }
+
+  @Override
+  public Book readBook(int record) {
+    return this.readMappedBook(record, this.getQuantityAvailable(record));
+  }
+
+  private Book readMappedBook(int record, int quantityAvailable) {
+    int position = this.recordPosition(record);
+
+    return Book.createForRecord(
+      record,
+      GENRES[this.data.getInt(position + GENRE)],
+      this.readString(position + ISBN),
+      this.readString(position + TITLE),
+      this.readString(position + AUTHOR),
+      quantityAvailable
+    );
+  }
+
+  /**
+   * This method retrieves the current quantity of a record,
+   * from its Book object if one was created and from the mapped file otherwise.
+   */
+  @Override
+  public int getQuantityAvailable(int record) {
+    Book book = this.materializedBooks.get(record);
+
+    return book != null
+      ? book.getQuantityAvailable()
+      : this.data.getInt(this.recordPosition(record) + QUANTITY);
+  }
+
+  @Override
+  public Genre getGenre(int record) {
+    return GENRES[this.data.getInt(this.recordPosition(record) + GENRE)];
+  }
+
+  /**
+   * This method scans the records comparing the term's UTF-8 bytes with the mapped strings, without decoding them.
+   */
+  @Override
+  public int search(
+    String lowerCasedSearchTerm,
+    boolean[] matchedGenres,
+    int fromRecord,
+    int toRecord,
+    int maxResults,
+    List<Book> foundBooks
+  ) {
+    byte[] term = lowerCasedSearchTerm.getBytes(StandardCharsets.UTF_8);
+    int found = 0;
+
+    for (int record = fromRecord; record < toRecord; record++) {
+      if (this.matches(record, term, matchedGenres)) {
+        foundBooks.add(this.getBook(record));
+
+        if (++found == maxResults) {
+          return record + 1;
+        }
+      }
+    }
+
+    return toRecord;
+  }
+
+  @Override
+  public boolean isAppendable() {
+    return false;
+  }
+
+  @Override
+  public int append(Book book) {
+    throw new UnsupportedOperationException("Mapped catalogs are read-only");
+  }
+
+  private boolean matches(int record, byte[] lowerCasedTerm, boolean[] matchedGenres) {
+    int position = this.recordPosition(record);
+
+    return (
+      matchedGenres[this.data.getInt(position + GENRE)] ||
+      this.containsBytes(position + SEARCHABLE_AUTHOR, lowerCasedTerm) ||
+      this.equalsBytes(position + SEARCHABLE_ISBN, lowerCasedTerm) ||
+      this.containsBytes(position + SEARCHABLE_TITLE, lowerCasedTerm)
+    );
+  }
+
+  /**
+   * This method finds the first record with a normalized ISBN through a binary search over the ISBN index.
+   */
+  @Override
+  public int findByIsbn(String normalizedIsbn) {
+    byte[] isbn = normalizedIsbn.getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = this.recordCount - 1;
+    int found = -1;
+
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int record = this.data.getInt(this.isbnIndexOffset + middle * Integer.BYTES);
+      int comparison = this.compareBytes(
+          this.recordPosition(record) + NORMALIZED_ISBN,
+          isbn
+        );
+
+      if (comparison < 0) {
+        low = middle + 1;
+      } else {
+        if (comparison == 0) {
+          found = record;
+        }
+
+        high = middle - 1;
+      }
+    }
+
+    return found;
+  }
+
+  private int recordPosition(int record) {
+    return this.recordsOffset + record * RECORD_SIZE;
+  }
+
+  private int stringPosition(int fieldPosition) {
+    return this.poolOffset + this.data.getInt(fieldPosition);
+  }
+
+  private String readString(int fieldPosition) {
+    int position = this.stringPosition(fieldPosition);
+    byte[] bytes = new byte[Short.toUnsignedInt(this.data.getShort(position))];
+    this.data.get(position + Short.BYTES, bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private boolean containsBytes(int fieldPosition, byte[] term) {
+    int position = this.stringPosition(fieldPosition);
+    int length = Short.toUnsignedInt(this.data.getShort(position));
+    int start = position + Short.BYTES;
+
+    for (int i = 0; i + term.length <= length; i++) {
+      int j = 0;
+
+      while (j < term.length && this.data.get(start + i + j) == term[j]) {
+        j++;
+      }
+
+      if (j == term.length) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private boolean equalsBytes(int fieldPosition, byte[] term) {
+    return this.compareBytes(fieldPosition, term) == 0;
+  }
+
+  private int compareBytes(int fieldPosition, byte[] term) {
+    int position = this.stringPosition(fieldPosition);
+    int length = Short.toUnsignedInt(this.data.getShort(position));
+    int start = position + Short.BYTES;
+
+    for (int i = 0; i < length && i < term.length; i++) {
+      int comparison = Byte.compareUnsigned(this.data.get(start + i), term[i]);
+
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+
+    return Integer.compare(length, term.length);
+  }
+
+  private static int compareUtf8(String first, String second) {
+    return Arrays.compareUnsigned(
+      first.getBytes(StandardCharsets.UTF_8),
+      second.getBytes(StandardCharsets.UTF_8)
+    );
+  }
+
+  private static int pooled(
+    String value,
+    ByteArrayOutputStream pool,
+    Map<String, Integer> poolOffsets
+  ) throws IOException {
+    Integer offset = poolOffsets.get(value);
+
+    if (offset != null) {
+      return offset;
+    }
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+    if (bytes.length > 0xffff) {
+      throw new IOException("Strings in the catalog are limited to 64KB");
+    }
+
+    offset = pool.size();
+    pool.write(bytes.length >>> 8);
+    pool.write(bytes.length);
+    pool.write(bytes);
+    poolOffsets.put(value, offset);
+
+    return offset;
+  }
+}
@@ -0,0 +1,122 @@
+package models;
+
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the active borrowings in a min-heap ordered by devolution day and moves
+ * the ones that become late to the overdue set, counting them per borrower.
+ * Days are epoch days in the default time zone, so sweeping compares longs and allocates nothing.
+ * Returned borrowings are dropped from the heap lazily, when they reach its head.
+ */
+class OverdueTracker {
+
+  private static final long SWEEP_PERIOD_SECONDS = 60;
+  private static final long MILLIS_PER_DAY = 86_400_000;
+  private static final TimeZone TIME_ZONE = TimeZone.getDefault();
+
+  private PriorityQueue<BookBorrowing> pendingBorrowings = new PriorityQueue<>(
+    Comparator.comparingLong(BookBorrowing::getDevolutionDay)
+  );
+  private Set<BookBorrowing> overdueBorrowings = new LinkedHashSet<>();
+  private Map<User, Integer> overdueCountByUser = new ConcurrentHashMap<>();
+
+  OverdueTracker() {
+    ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+      runnable -> {
+        Thread thread = new Thread(runnable, "overdue-sweeper");
+        thread.setDaemon(true);
+        return thread;
+      }
+    );
+
+    sweeper.scheduleAtFixedRate(
+      () -> this.sweep(OverdueTracker.today()),
+      SWEEP_PERIOD_SECONDS,
+      SWEEP_PERIOD_SECONDS,
+      TimeUnit.SECONDS
+    );
+  }
+
+  /**
+   * This method retrieves the current epoch day in the default time zone,
+   * the same day LocalDate.now().toEpochDay() returns, without allocating.
+   */
+  static long today() {
+    long now = System.currentTimeMillis();
+
+    return Math.floorDiv(now + TIME_ZONE.getOffset(now), MILLIS_PER_DAY);
+  }
+
+  /**
+   * This method starts tracking the devolution date of a new borrowing.
+   *
+   * @param borrowing The borrowing being tracked.
+   */
+  synchronized void track(BookBorrowing borrowing) {
+    this.pendingBorrowings.add(borrowing);
+  }
+
+  /**
+   * This method stops tracking a returned borrowing.
+   * If it was late, the borrower's overdue count is decremented.
+   *
+   * @param borrowing The borrowing that was returned.
+   */
+  synchronized void untrack(BookBorrowing borrowing) {
+    if (this.overdueBorrowings.remove(borrowing)) {
+      this.overdueCountByUser.computeIfPresent(
+          borrowing.getBorrower(),
+          (user, count) -> count == 1 ? null : count - 1
+        );
+    }
+  }
+
+  /**
+   * This method moves every active borrowing whose devolution day is before the given day to the overdue set.
+   * When no borrowing is due it only peeks at the head of the heap.
+   *
+   * @param today The current epoch day.
+   */
+  synchronized void sweep(long today) {
+    while (
+      !this.pendingBorrowings.isEmpty() &&
+      this.pendingBorrowings.peek().getDevolutionDay() < today
+    ) {
+      BookBorrowing borrowing = this.pendingBorrowings.poll();
+
+      if (BookBorrowing.isActive(borrowing)) {
+        this.overdueBorrowings.add(borrowing);
+        this.overdueCountByUser.merge(borrowing.getBorrower(), 1, Integer::sum);
+      }
+    }
+  }
+
+  /**
+   * This method checks if a user has late borrowings as of the last sweep.
+   *
+   * @param user The user being checked.
+   * @return True if the user has late borrowings, false otherwise.
+   */
+  boolean hasOverdueBorrowings(User user) {
+    return this.overdueCountByUser.containsKey(user);
+  }
+
+  /**
+   * This method retrieves the late borrowings as of the last sweep, ordered by devolution day.
+   *
+   * @return A list with the late borrowings.
+   */
+  synchronized List<BookBorrowing> getOverdueBorrowings() {
+    return List.copyOf(this.overdueBorrowings);
+  }
+}
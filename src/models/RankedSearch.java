@@ -0,0 +1,163 @@
+package models;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best scored matches of a search term while the matches are offered one by one.
+ *
+ * A book is scored by the field the term matches in, from the strongest to the weakest:
+ * exact ISBN, title prefix, title, author and genre. Within a field, books where the term
+ * occurs more often and covers more of the field come first, and equal scores keep id order.
+ * Only the best maxResults books are kept, in a heap whose head is the worst of them,
+ * so the matches are never all kept or sorted.
+ */
+class RankedSearch {
+
+  private static final int EXACT_ISBN = 5;
+  private static final int TITLE_PREFIX = 4;
+  private static final int TITLE = 3;
+  private static final int AUTHOR = 2;
+  private static final int GENRE = 1;
+
+  private static final Comparator<ScoredBook> WORST_FIRST = Comparator
+    .comparingDouble((ScoredBook scoredBook) -> scoredBook.score)
+    .thenComparing(scoredBook -> scoredBook.book.getId(), Comparator.reverseOrder());
+
+  private String lowerCasedSearchTerm;
+  private String normalizedIsbnTerm;
+  private int maxResults;
+  private int matchCount;
+  private PriorityQueue<ScoredBook> bestBooks = new PriorityQueue<>(WORST_FIRST);
+
+  RankedSearch(String lowerCasedSearchTerm, int maxResults) {
+    this.lowerCasedSearchTerm = lowerCasedSearchTerm;
+    this.normalizedIsbnTerm = Book.normalizeIsbn(lowerCasedSearchTerm);
+    this.maxResults = maxResults;
+  }
+
+  /**
+   * This method scores a book matching the search term and keeps it if it is among the best ones so far.
+   */
+  void offer(Book book) {
+    ScoredBook scoredBook = new ScoredBook(book, this.score(book));
+    this.matchCount++;
+
+    if (this.bestBooks.size() < this.maxResults) {
+      this.bestBooks.add(scoredBook);
+    } else if (WORST_FIRST.compare(scoredBook, this.bestBooks.peek()) > 0) {
+      this.bestBooks.poll();
+      this.bestBooks.add(scoredBook);
+    }
+  }
+
+  /**
+   * This method retrieves a list that offers every book added to it, so a search adding its matches
+   * to a list ranks them as they are found. Its size is the number of books offered,
+   * and its books can't be read back.
+   */
+  List<Book> asMatchList() {
+    return new AbstractList<Book>() {
+      @Override
+      public boolean add(Book book) {
+        RankedSearch.this.offer(book);
+
+        return true;
+      }
+
+      @Override
+      public Book get(int index) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public int size() {
+        return RankedSearch.this.matchCount;
+      }
+    };
+  }
+
+  /**
+   * This method retrieves the number of books offered, including the ones that were not kept.
+   */
+  int getMatchCount() {
+    return this.matchCount;
+  }
+
+  /**
+   * This method retrieves the kept books from the best to the worst.
+   */
+  List<Book> getBooks() {
+    List<Book> books = new ArrayList<>(this.bestBooks.size());
+
+    while (!this.bestBooks.isEmpty()) {
+      books.add(this.bestBooks.poll().book);
+    }
+
+    Collections.reverse(books);
+
+    return books;
+  }
+
+  /**
+   * This method scores a book by the strongest field the term matches in, plus the share of that field
+   * covered by the occurrences of the term, which is always lower than 1.
+   * ISBNs are compared normalized, since the books of the columnar storage show them that way.
+   */
+  private double score(Book book) {
+    if (Book.normalizeIsbn(book.getIsbn()).equalsIgnoreCase(this.normalizedIsbnTerm)) {
+      return EXACT_ISBN;
+    }
+
+    String title = book.getSearchableTitle();
+
+    if (title.startsWith(this.lowerCasedSearchTerm)) {
+      return TITLE_PREFIX + this.coverage(title);
+    }
+
+    if (title.contains(this.lowerCasedSearchTerm)) {
+      return TITLE + this.coverage(title);
+    }
+
+    if (book.getSearchableAuthor().contains(this.lowerCasedSearchTerm)) {
+      return AUTHOR + this.coverage(book.getSearchableAuthor());
+    }
+
+    String genre = book.getGenre().toString().toLowerCase();
+
+    return genre.contains(this.lowerCasedSearchTerm) ? GENRE + this.coverage(genre) : 0;
+  }
+
+  private double coverage(String field) {
+    if (this.lowerCasedSearchTerm.isEmpty()) {
+      return 0;
+    }
+
+    int occurrences = 0;
+
+    for (
+      int i = field.indexOf(this.lowerCasedSearchTerm);
+      i >= 0;
+      i = field.indexOf(this.lowerCasedSearchTerm, i + this.lowerCasedSearchTerm.length())
+    ) {
+      occurrences++;
+    }
+
+    return (double) occurrences * this.lowerCasedSearchTerm.length() / (field.length() + 1);
+  }
+
+  private static class ScoredBook {
+
+    private Book book;
+    private double score;
+
+    private ScoredBook(Book book, double score) {
+      this.book = book;
+      this.score = score;
+    }
+  }
+}
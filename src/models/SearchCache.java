@@ -0,0 +1,199 @@
+package models;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import metrics.CacheMetrics;
+
+/**
+ * Bounded cache of the pages returned by book searches, ranked searches and available book queries,
+ * published as the MBean bookstore:type=Cache,name=Book.search.
+ *
+ * Each page is kept with the catalog version it was computed at, and is only returned
+ * while that version is current. Registering books bumps the version of both kinds of pages.
+ * A book running out of copies or getting one back bumps the version of the available book pages only,
+ * since search results don't depend on quantities and show the quantity of each Book object when displayed.
+ *
+ * The cache holds at most bookstore.searchCache.maxBooks book references (100000 by default).
+ * Larger pages are not cached.
+ *
+ * Pages are read and cached without locking. Instead of moving a page to the end of a list on every hit,
+ * a hit only marks the page as used, and pages are evicted with the clock algorithm,
+ * an approximation of least recently used eviction: a hand goes around the pages,
+ * clearing the mark of used pages and evicting the first page that wasn't used since the hand last passed it.
+ * Only the thread caching a page past the limit moves the hand, while holding the cache's lock.
+ */
+class SearchCache {
+
+  private static final int MAX_BOOKS = Integer.getInteger(
+    "bookstore.searchCache.maxBooks",
+    100_000
+  );
+
+  private AtomicLong catalogVersion = new AtomicLong();
+  private AtomicLong availabilityVersion = new AtomicLong();
+  private Map<String, CachedPage> pages = new ConcurrentHashMap<>();
+  private AtomicInteger cachedBooks = new AtomicInteger();
+  private Iterator<Map.Entry<String, CachedPage>> clockHand = Collections.emptyIterator();
+  private CacheMetrics metrics = CacheMetrics.of("Book.search", this::size);
+
+  /**
+   * This method retrieves the version search pages are computed at.
+   * It must be read before the search starts, so changes made during the search make its page stale.
+   */
+  long getSearchVersion() {
+    return this.catalogVersion.get();
+  }
+
+  /**
+   * This method retrieves the version available book pages are computed at.
+   * Both counters only grow, so their sum changes whenever either of them does.
+   */
+  long getAvailabilityVersion() {
+    return this.catalogVersion.get() + this.availabilityVersion.get();
+  }
+
+  /**
+   * This method makes every cached page stale. It is called after books are registered.
+   */
+  void invalidateCatalog() {
+    this.catalogVersion.incrementAndGet();
+    this.metrics.recordInvalidation();
+  }
+
+  /**
+   * This method makes the cached available book pages stale.
+   * It is called after a book runs out of copies or gets one back.
+   */
+  void invalidateAvailability() {
+    this.availabilityVersion.incrementAndGet();
+    this.metrics.recordInvalidation();
+  }
+
+  /**
+   * This method retrieves a cached page, dropping it if it was computed at an older version.
+   *
+   * @param key The key of the page, created by searchKey or availableBooksKey.
+   * @param version The current version of that kind of page.
+   * @return The cached page, or null if there is none for the current version.
+   */
+  BookPage get(String key, long version) {
+    CachedPage cachedPage = this.pages.get(key);
+
+    if (cachedPage != null && cachedPage.version != version) {
+      this.remove(key, cachedPage);
+      cachedPage = null;
+    }
+
+    if (cachedPage == null) {
+      this.metrics.recordMiss();
+
+      return null;
+    }
+
+    // Checked first, so pages hit again and again don't keep writing the same cache line
+    if (!cachedPage.used) {
+      cachedPage.used = true;
+    }
+
+    this.metrics.recordHit();
+
+    return cachedPage.page;
+  }
+
+  /**
+   * This method caches a page computed at the given version.
+   * The page's book list must not be changed afterwards, since it is shared by every later hit.
+   */
+  void put(String key, long version, BookPage page) {
+    int weight = page.getBooks().size() + 1;
+
+    if (weight > MAX_BOOKS) {
+      return;
+    }
+
+    CachedPage cachedPage = new CachedPage(page, version, weight);
+    CachedPage replacedPage = this.pages.put(key, cachedPage);
+    int cachedBooks = this.cachedBooks.addAndGet(
+      replacedPage == null ? weight : weight - replacedPage.weight
+    );
+
+    if (cachedBooks > MAX_BOOKS) {
+      this.evict();
+    }
+  }
+
+  int size() {
+    return this.pages.size();
+  }
+
+  /**
+   * This method moves the clock hand until the cached pages fit in the limit again.
+   * Every page the hand passes twice without a hit in between is evicted,
+   * so unless pages keep being hit the hand stops within two turns.
+   */
+  private synchronized void evict() {
+    while (this.cachedBooks.get() > MAX_BOOKS) {
+      if (!this.clockHand.hasNext()) {
+        this.clockHand = this.pages.entrySet().iterator();
+
+        if (!this.clockHand.hasNext()) {
+          return;
+        }
+      }
+
+      Map.Entry<String, CachedPage> entry = this.clockHand.next();
+      CachedPage cachedPage = entry.getValue();
+
+      if (cachedPage.used) {
+        cachedPage.used = false;
+      } else if (this.remove(entry.getKey(), cachedPage)) {
+        this.metrics.recordEviction();
+      }
+    }
+  }
+
+  /**
+   * This method removes a page unless it was replaced in the meantime.
+   *
+   * @return true if the page was removed.
+   */
+  private boolean remove(String key, CachedPage cachedPage) {
+    if (!this.pages.remove(key, cachedPage)) {
+      return false;
+    }
+
+    this.cachedBooks.addAndGet(-cachedPage.weight);
+
+    return true;
+  }
+
+  static String searchKey(String lowerCasedSearchTerm, int firstId, int pageSize) {
+    return "search:" + firstId + ':' + pageSize + ':' + lowerCasedSearchTerm;
+  }
+
+  static String rankedSearchKey(String lowerCasedSearchTerm, int firstRank, int pageSize) {
+    return "ranked:" + firstRank + ':' + pageSize + ':' + lowerCasedSearchTerm;
+  }
+
+  static String availableBooksKey(int firstId, int pageSize) {
+    return "available:" + firstId + ':' + pageSize;
+  }
+
+  private static class CachedPage {
+
+    private BookPage page;
+    private long version;
+    private int weight;
+    private volatile boolean used;
+
+    private CachedPage(BookPage page, long version, int weight) {
+      this.page = page;
+      this.version = version;
+      this.weight = weight;
+    }
+  }
+}
@@ -2,17 +2,28 @@ package models;
 
 import enums.UserType;
 import exceptions.EntityNotFoundException;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import metrics.OperationMetrics;
 
 public class User {
 
   private String username;
   private String password;
   private UserType type;
-  private static List<User> allUsers = new ArrayList<User>(
-    Arrays.asList(new User("admin", "admin"))
+  private static Map<String, User> usersByUsername = new ConcurrentHashMap<>(
+    Map.of("admin", new User("admin", "admin"))
+  );
+  private static OperationMetrics createMetrics = OperationMetrics.of(
+    "User.create"
+  );
+  private static OperationMetrics loginMetrics = OperationMetrics.of(
+    "User.login"
+  );
+  private static OperationMetrics getUserByUsernameMetrics = OperationMetrics.of(
+    "User.getUserByUsername"
   );
 
   public User(String username, String password) {
@@ -21,12 +32,41 @@ public class User {
     this.type = UserType.EMPLOYEE;
   }
 
+  /**
+   * This method registers a new user, so they can log in and be found by their username.
+   *
+   * @param username The username of the user, which must not be taken.
+   * @param password The password of the user.
+   * @param type The type of the user.
+   * @throws IllegalArgumentException If a user with the given username already exists.
+   */
   public User(String username, String password, UserType type) {
-    this.username = username;
-    this.password = password;
-    this.type = type;
+    long startTime = System.nanoTime();
 
-    User.allUsers.add(this);
+    try {
+      this.username = username;
+      this.password = password;
+      this.type = type;
+
+      CompletableFuture<Void> logged;
+      Journal journal = Journal.beginChange();
+
+      try {
+        if (User.usersByUsername.putIfAbsent(username, this) != null) {
+          throw new IllegalArgumentException(
+            "A user with the username " + username + " already exists"
+          );
+        }
+
+        logged = Journal.logUserCreated(this);
+      } finally {
+        Journal.endChange(journal);
+      }
+
+      logged.join();
+    } finally {
+      User.createMetrics.record(startTime);
+    }
   }
 
   /**
@@ -37,13 +77,19 @@ public class User {
    * @return The User object if the username and password match an existing user, otherwise null.
    */
   public static User login(String username, String password) {
-    return User.allUsers
-      .stream()
-      .filter(user ->
-        user.username.equals(username) && user.password.equals(password)
-      )
-      .findFirst()
-      .orElse(null);
+    long startTime = System.nanoTime();
+
+    try {
+      User foundUser = User.usersByUsername.get(username);
+
+      if (foundUser == null || !foundUser.password.equals(password)) {
+        return null;
+      }
+
+      return foundUser;
+    } finally {
+      User.loginMetrics.record(startTime);
+    }
   }
 
   /**
@@ -55,25 +101,48 @@ public class User {
    */
   public static User getUserByUsername(String username)
     throws EntityNotFoundException {
-    User foundUser = User.allUsers
-      .stream()
-      .filter(user -> user.username.equals(username))
-      .findFirst()
-      .orElse(null);
-
-    if (foundUser == null) {
-      throw new EntityNotFoundException(
-        "\nNo user found with username: " + username
-      );
+    long startTime = System.nanoTime();
+
+    try {
+      User foundUser = User.usersByUsername.get(username);
+
+      if (foundUser == null) {
+        throw new EntityNotFoundException(
+          "\nNo user found with username: " + username
+        );
+      }
+
+      return foundUser;
+    } finally {
+      User.getUserByUsernameMetrics.record(startTime);
     }
+  }
 
-    return foundUser;
+  /**
+   * This method checks if a user with the given username already exists.
+   *
+   * @param username The username to be checked.
+   * @return True if a user with the given username exists, false otherwise.
+   */
+  public static boolean existsByUsername(String username) {
+    return User.usersByUsername.containsKey(username);
+  }
+
+  /**
+   * This method retrieves every registered user.
+   */
+  static List<User> getAllUsers() {
+    return List.copyOf(User.usersByUsername.values());
   }
 
   public String getUsername() {
     return this.username;
   }
 
+  String getPassword() {
+    return this.password;
+  }
+
   public UserType getType() {
     return this.type;
   }
@@ -0,0 +1,117 @@
+package models;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * First in, first out queue of the users waiting for a copy of one book.
+ *
+ * A user only joins the queue after failing to reserve a copy, and a returned or restocked copy is handed
+ * to the first user in the queue instead of going to the stock. Both happen while holding the queue's lock,
+ * so a copy can't be returned between a failed reservation and the user joining the queue,
+ * and each returned copy goes either to the stock or to exactly one waiting user.
+ * Borrowers that don't wait can't take a copy before the users waiting for it,
+ * since a returned copy never reaches the stock while someone is waiting.
+ */
+class Waitlist {
+
+  private Deque<Waiter> waiters;
+
+  /**
+   * This method reserves a copy of the book for the user, or puts the user at the end of the queue.
+   *
+   * @param borrowing The future completed with the borrowing once a copy is handed to the user.
+   * @return true if a copy was reserved, false if the user joined the queue.
+   */
+  synchronized boolean reserveOrJoin(
+    Book book,
+    User user,
+    CompletableFuture<BookBorrowing> borrowing
+  ) {
+    if (book.reserveCopy()) {
+      return true;
+    }
+
+    if (this.waiters == null) {
+      this.waiters = new ArrayDeque<>();
+    }
+
+    Waiter waiter = new Waiter(user, borrowing);
+    this.waiters.add(waiter);
+    // A user who cancels leaves the queue at once instead of at the next return
+    borrowing.whenComplete((result, failure) -> {
+      if (borrowing.isCancelled()) {
+        this.leave(waiter);
+      }
+    });
+
+    return false;
+  }
+
+  /**
+   * This method takes the first user still waiting out of the queue, or puts the copy back into the stock
+   * if nobody is waiting. Users whose future was cancelled but who are still in the queue are dropped.
+   *
+   * @return The user the copy was handed to, or null if it went back to the stock.
+   */
+  synchronized Waiter handOverOrRelease(Book book) {
+    while (this.waiters != null && !this.waiters.isEmpty()) {
+      Waiter waiter = this.waiters.poll();
+
+      if (!waiter.borrowing.isDone()) {
+        return waiter;
+      }
+    }
+
+    book.releaseCopy();
+
+    return null;
+  }
+
+  /**
+   * This method puts copies added to the stock of the book straight into the stock if nobody is waiting,
+   * so restocking a book without a queue doesn't hand over one copy at a time.
+   *
+   * @return true if the copies went to the stock, false if users are waiting and each copy must be handed over.
+   */
+  synchronized boolean releaseIfNobodyWaits(Book book, int copies) {
+    if (this.waiters != null && !this.waiters.isEmpty()) {
+      return false;
+    }
+
+    book.addCopies(copies);
+
+    return true;
+  }
+
+  synchronized int size() {
+    return this.waiters == null ? 0 : this.waiters.size();
+  }
+
+  private synchronized void leave(Waiter waiter) {
+    this.waiters.remove(waiter);
+  }
+
+  /**
+   * User waiting for a copy, with the future completed once the copy is handed to them.
+   */
+  static class Waiter {
+
+    private User user;
+    private CompletableFuture<BookBorrowing> borrowing;
+
+    private Waiter(User user, CompletableFuture<BookBorrowing> borrowing) {
+      this.user = user;
+      this.borrowing = borrowing;
+    }
+
+    User getUser() {
+      return this.user;
+    }
+
+    CompletableFuture<BookBorrowing> getBorrowing() {
+      return this.borrowing;
+    }
+  }
+}
@@ -1,11 +1,14 @@
 package services;
 
+import exceptions.BookAlreadyBorrowedException;
 import exceptions.EntityNotFoundException;
 import exceptions.LateBorrowingsException;
-import java.util.Date;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import models.Book;
 import models.BookBorrowing;
+import models.ConsoleRenderer;
 import models.User;
 
 public class BookBorrowingService {
@@ -55,7 +58,9 @@ public class BookBorrowingService {
    */
   private static void borrowBook() {
     System.out.println("All the books available to borrow:");
-    Book.getAvailableBooks().forEach(Book::displayInfo);
+    BookService.displayAvailableBooks(
+      Book.getAvailableBooks(BookService.PAGE_SIZE, null)
+    );
 
     while (true) {
       try {
@@ -63,7 +68,7 @@ public class BookBorrowingService {
           "Type the ISBN of the book that is going to be borrowed: "
         );
         String isbn = System.console().readLine();
-        Book borrowedBook = Book.getBooks(isbn).get(0);
+        Book borrowedBook = Book.getByIsbn(isbn);
 
         System.out.print(
           "Type the username of the user that is going to borrow the book: "
@@ -71,10 +76,21 @@ public class BookBorrowingService {
         String username = System.console().readLine();
         User borrower = User.getUserByUsername(username);
 
-        new BookBorrowing(borrowedBook, borrower, new Date());
-        System.out.println("\nThe book was successfully borrowed!");
+        try {
+          new BookBorrowing(borrowedBook, borrower, LocalDate.now());
+          System.out.println("\nThe book was successfully borrowed!");
+        } catch (BookAlreadyBorrowedException e) {
+          if (!joinWaitlist(borrowedBook, borrower)) {
+            throw e;
+          }
+        }
+
         break;
-      } catch (EntityNotFoundException | LateBorrowingsException e) {
+      } catch (
+        EntityNotFoundException
+        | LateBorrowingsException
+        | BookAlreadyBorrowedException e
+      ) {
         System.err.println(e.getMessage());
 
         System.out.println(
@@ -91,6 +107,51 @@ public class BookBorrowingService {
     }
   }
 
+  /**
+   * This method offers to put the user in the waitlist of a book without available copies.
+   * The user is told on the console once a returned copy is borrowed to them, while they keep using the menus.
+   *
+   * @return true if the user joined the waitlist, false if they didn't want to.
+   * @throws LateBorrowingsException If the user has late borrowings.
+   */
+  private static boolean joinWaitlist(Book borrowedBook, User borrower)
+    throws LateBorrowingsException {
+    System.out.println(
+      "\nAll the copies of this book are borrowed, do you want to wait for the next copy to be returned?"
+    );
+
+    String typedChoice = System.console().readLine();
+
+    if (!typedChoice.equalsIgnoreCase("yes")) {
+      return false;
+    }
+
+    CompletableFuture<BookBorrowing> reservation = BookBorrowing.reserve(
+      borrowedBook,
+      borrower
+    );
+
+    if (!reservation.isDone()) {
+      System.out.println(
+        "\nThe user is waiting for the book, with " +
+        BookBorrowing.countWaitingUsers(borrowedBook) +
+        " user(s) in the waitlist."
+      );
+    }
+
+    reservation.thenAccept(borrowing ->
+      System.out.println(
+        "\nA copy of " +
+        borrowing.getBorrowedBook().getTitle() +
+        " was returned and borrowed to " +
+        borrowing.getBorrower().getUsername() +
+        "!"
+      )
+    );
+
+    return true;
+  }
+
   /**
    * This method handles the process of returning a borrowed book.
    * It prompts the user to enter the username of the borrower and the ISBN of the book to be returned.
@@ -115,7 +176,7 @@ public class BookBorrowingService {
           "----------------------------------------------------"
         );
         System.out.println("\nBooks that the user can return:");
-        userBorrowings.forEach(BookBorrowing::displayInfo);
+        ConsoleRenderer.renderBorrowings(userBorrowings);
 
         System.out.print(
           "Type the ISBN of the book that is going to be returned: "
@@ -2,16 +2,32 @@ package services;
 
 import enums.Genre;
 import enums.UserType;
+import exceptions.EntityNotFoundException;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.List;
+import metrics.BookDisplayEvent;
+import metrics.OperationMetrics;
 import models.Book;
+import models.BookPage;
+import models.CatalogImporter;
+import models.ConsoleRenderer;
 import models.User;
 
 public class BookService {
 
+  static final int PAGE_SIZE = 20;
+
+  private static OperationMetrics importBooksMetrics = OperationMetrics.of(
+    "BookService.importBooks"
+  );
+
   /**
    * This method displays a menu for the user to choose an option for managing books.
    * It continuously prompts the user for input until a valid option is selected.
-   * The options include creating a book, showing all books, showing only available books, and exiting the program.
+   * The options include creating a book, showing all books, showing only available books,
+   * importing books from a file, and exiting the program.
    */
   public static void showOptions(User loggedUser) {
     while (true) {
@@ -26,7 +42,12 @@ public class BookService {
 
       System.out.println("2 - Show all books");
       System.out.println("3 - Show only available books");
-      System.out.println("4 - Exit");
+
+      if (loggedUser.getType() == UserType.EMPLOYEE) {
+        System.out.println("4 - Import books from a CSV or TSV file");
+      }
+
+      System.out.println("5 - Exit");
 
       try {
         int optionChosen = Integer.parseInt(System.console().readLine());
@@ -42,6 +63,11 @@ public class BookService {
           }
           case 2 -> showSearchedBooks();
           case 3 -> showAllAvailableBooks();
+          case 4 -> {
+            if (loggedUser.getType() == UserType.EMPLOYEE) {
+              importBooks();
+            }
+          }
         }
 
         break;
@@ -95,6 +121,60 @@ public class BookService {
     }
   }
 
+  /**
+   * This method asks the user for the path of a catalog file and imports its books.
+   * A path the file system can't represent is reported instead of being imported.
+   */
+  private static void importBooks() {
+    System.out.print("Type the path of the file: ");
+    String typedPath = System.console().readLine();
+
+    try {
+      importBooks(Path.of(typedPath));
+    } catch (InvalidPathException e) {
+      System.out.println("\nThe path " + typedPath + " is not valid");
+      System.out.println(
+        "----------------------------------------------------"
+      );
+    }
+  }
+
+  /**
+   * This method imports the books of a CSV or TSV catalog file and displays a report of the import,
+   * including the import speed and the lines that were rejected.
+   *
+   * @param path The path of the catalog file.
+   */
+  public static void importBooks(Path path) {
+    long startTime = System.nanoTime();
+
+    try {
+      CatalogImporter.Report report = CatalogImporter.importCatalog(path);
+
+      System.out.println(
+        "\n" +
+        report.getImportedRows() +
+        " books imported in " +
+        report.getElapsedSeconds() +
+        "s (" +
+        report.getRowsPerSecond() +
+        " rows/s)"
+      );
+
+      if (report.getRejectedRows() > 0) {
+        System.out.println(report.getRejectedRows() + " lines were rejected:");
+        report.getRejectedLines().forEach(System.out::println);
+      }
+    } catch (IOException e) {
+      System.out.println("\nThe file " + path + " could not be read");
+    } finally {
+      System.out.println(
+        "----------------------------------------------------"
+      );
+      BookService.importBooksMetrics.record(startTime);
+    }
+  }
+
   /**
    * This method is used to choose a genre for a book from the available options.
    * It continuously prompts the user to select a genre until a valid option is chosen.
@@ -141,7 +221,8 @@ public class BookService {
   /**
    * This method is used to display a list of books that match the search term.
    * The search term can be the title, genre, or author of the book.
-   * If no books are found that match the search term, an appropriate message is displayed.
+   * The books are displayed from the most to the least relevant.
+   * If no books are found that match the search term, the books closest to it are displayed instead.
    */
   private static void showSearchedBooks() {
     System.out.print(
@@ -151,9 +232,28 @@ public class BookService {
     String searchTerm = System.console().readLine();
 
     try {
-      List<Book> foundBooks = Book.getBooks(searchTerm);
-      foundBooks.forEach(Book::displayInfo);
+      displayPages(
+        Book.getRankedBooks(searchTerm, PAGE_SIZE, null),
+        continuationToken ->
+          Book.getRankedBooks(searchTerm, PAGE_SIZE, continuationToken)
+      );
     } catch (Exception e) {
+      showSimilarBooks(searchTerm);
+    }
+  }
+
+  /**
+   * This method displays the books whose title or author is closest to a search term without exact matches,
+   * so a misspelled term still finds the books it was meant for.
+   * If no book is close to the term either, an appropriate message is displayed.
+   */
+  private static void showSimilarBooks(String searchTerm) {
+    try {
+      List<Book> similarBooks = Book.getSimilarBooks(searchTerm, PAGE_SIZE);
+
+      System.out.println("\nNo exact match was found, showing the closest books:");
+      displayBooks(similarBooks);
+    } catch (EntityNotFoundException e) {
       System.out.println("\nNo book compatible with the search term was found");
       System.out.println(
         "----------------------------------------------------"
@@ -163,15 +263,99 @@ public class BookService {
 
   /**
    * This method is used to display a list of all available books.
-   * It retrieves the list of available books from the Book model and then displays their information.
+   * It displays the number of available books of each genre, then retrieves the available books
+   * from the Book model one page at a time and displays their information.
    * If no available books are found, an appropriate message is displayed.
    */
   private static void showAllAvailableBooks() {
-    List<Book> availableBooks = Book.getAvailableBooks();
-    availableBooks.forEach(Book::displayInfo);
+    BookPage firstPage = Book.getAvailableBooks(PAGE_SIZE, null);
 
-    if (availableBooks.size() == 0) {
+    if (firstPage.getBooks().size() == 0) {
       System.out.println("No available book was found");
+      return;
+    }
+
+    displayGenreCounts();
+    displayAvailableBooks(firstPage);
+  }
+
+  /**
+   * This method displays how many books of each genre have copies available, out of all the books of that genre.
+   */
+  private static void displayGenreCounts() {
+    for (Genre genre : Genre.values()) {
+      System.out.println(
+        genre +
+        ": " +
+        Book.countAvailableBooks(genre) +
+        " of " +
+        Book.countBooks(genre) +
+        " books available"
+      );
+    }
+  }
+
+  /**
+   * This method displays a first page of available books and the following pages the user asks for.
+   */
+  static void displayAvailableBooks(BookPage firstPage) {
+    try {
+      displayPages(
+        firstPage,
+        continuationToken -> Book.getAvailableBooks(PAGE_SIZE, continuationToken)
+      );
+    } catch (EntityNotFoundException e) {
+      // Pages of available books are never missing, an empty page is returned instead
+    }
+  }
+
+  /**
+   * This method displays pages of books, asking the user after each one if the next page should be shown.
+   * A page is only requested when the user asks for it, so the books after it are not searched before that.
+   *
+   * @param firstPage The page displayed first.
+   * @param pageLoader The query retrieving the page of a continuation token.
+   * @throws EntityNotFoundException If the query of a page throws it.
+   */
+  static void displayPages(BookPage firstPage, PageLoader pageLoader)
+    throws EntityNotFoundException {
+    BookPage page = firstPage;
+
+    while (true) {
+      displayBooks(page.getBooks());
+
+      if (!page.hasNextPage()) {
+        return;
+      }
+
+      System.out.print(
+        "Type \"more\" to see more books or press enter to continue: "
+      );
+
+      if (!System.console().readLine().strip().equalsIgnoreCase("more")) {
+        return;
+      }
+
+      page = pageLoader.load(page.getContinuationToken());
     }
   }
+
+  /**
+   * This method displays the information of every book in a list,
+   * recording the time spent formatting and printing them as a flight recorder event.
+   */
+  static void displayBooks(List<Book> books) {
+    BookDisplayEvent event = new BookDisplayEvent();
+    event.begin();
+
+    ConsoleRenderer.renderBooks(books);
+
+    event.bookCount = books.size();
+    event.commit();
+  }
+
+  @FunctionalInterface
+  interface PageLoader {
+    BookPage load(String continuationToken) throws EntityNotFoundException;
+  }
 }
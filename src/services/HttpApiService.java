@@ -0,0 +1,622 @@
+package services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import exceptions.BookAlreadyBorrowedException;
+import exceptions.EntityNotFoundException;
+import exceptions.InvalidSessionException;
+import exceptions.LateBorrowingsException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import metrics.OperationMetrics;
+import models.Book;
+import models.BookBorrowing;
+import models.BookPage;
+import models.User;
+
+public class HttpApiService {
+
+  private static final int BACKLOG = 1024;
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  private static final int DEFAULT_COMPLETIONS = 10;
+  private static final long DEFAULT_WAIT_SECONDS = 30;
+  private static final long MAX_WAIT_SECONDS = 30;
+  private static final int TOKEN_BYTES = 32;
+  private static final String BEARER_PREFIX = "Bearer ";
+
+  private static SecureRandom tokenGenerator = new SecureRandom();
+  private static Map<String, User> usersByToken = new ConcurrentHashMap<>();
+  private static Map<User, String> tokensByUser = new ConcurrentHashMap<>();
+
+  /**
+   * This method starts an HTTP server exposing the bookstore operations as JSON endpoints.
+   * Every request runs on its own virtual thread when the JVM supports them,
+   * otherwise on a cached thread pool.
+   *
+   * Endpoints (parameters can be sent in the query string or as a form body):
+   * POST /login (username, password), GET /books (search, ranked, pageSize, continuationToken),
+   * GET /books/available (pageSize, continuationToken), GET /books/completions (prefix, maxResults),
+   * POST /borrowings (isbn), POST /reservations (isbn, waitSeconds) and POST /returns (isbn).
+   * A missing required parameter is answered with 400.
+   * /login returns a session token, which the borrowing, reservation and return endpoints require
+   * in an "Authorization: Bearer <token>" header; they act on behalf of the user who logged in,
+   * and answer 401 without a valid token. Logging in again replaces the user's previous token.
+   * The book endpoints return one page of books and the token of the next page,
+   * which is null on the last page. With ranked=true, the searched books are ordered
+   * from the most to the least relevant instead of by id.
+   *
+   * @param port The port the server listens on.
+   * @return The started server.
+   * @throws IOException If the server can't bind to the port.
+   */
+  public static HttpServer start(int port) throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+
+    addEndpoint(server, "/login", "POST", HttpApiService::login);
+    addEndpoint(
+      server,
+      "/books/available",
+      "GET",
+      HttpApiService::availableBooks
+    );
+    addEndpoint(
+      server,
+      "/books/completions",
+      "GET",
+      HttpApiService::completeBooks
+    );
+    addEndpoint(server, "/books", "GET", HttpApiService::searchBooks);
+    addSessionEndpoint(server, "/borrowings", "POST", HttpApiService::borrowBook);
+    addSessionEndpoint(
+      server,
+      "/reservations",
+      "POST",
+      HttpApiService::reserveBook
+    );
+    addSessionEndpoint(server, "/returns", "POST", HttpApiService::returnBook);
+    server.setExecutor(createRequestExecutor());
+    server.start();
+
+    System.out.println("Bookstore API listening on port " + port);
+
+    return server;
+  }
+
+  private static Response login(Map<String, String> parameters) {
+    User loggedUser = User.login(
+      getRequiredParameter(parameters, "username"),
+      getRequiredParameter(parameters, "password")
+    );
+
+    if (loggedUser == null) {
+      return new Response(
+        401,
+        error("No existent user with the provided username and password was found")
+      );
+    }
+
+    return new Response(200, toJson(loggedUser, startSession(loggedUser)));
+  }
+
+  /**
+   * This method creates a random session token for a user who just logged in,
+   * ending the session of their previous token, so there is at most one session per user.
+   */
+  private static String startSession(User user) {
+    byte[] tokenBytes = new byte[TOKEN_BYTES];
+    HttpApiService.tokenGenerator.nextBytes(tokenBytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+
+    HttpApiService.usersByToken.put(token, user);
+    String previousToken = HttpApiService.tokensByUser.put(user, token);
+
+    if (previousToken != null) {
+      HttpApiService.usersByToken.remove(previousToken);
+    }
+
+    return token;
+  }
+
+  /**
+   * This method retrieves the user whose session token was sent with the request.
+   *
+   * @throws InvalidSessionException If no token was sent or it isn't the current token of any user.
+   */
+  private static User getSessionUser(HttpExchange exchange)
+    throws InvalidSessionException {
+    String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+
+    if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+      throw new InvalidSessionException();
+    }
+
+    User sessionUser = HttpApiService.usersByToken.get(
+      authorization.substring(BEARER_PREFIX.length()).strip()
+    );
+
+    if (sessionUser == null) {
+      throw new InvalidSessionException();
+    }
+
+    return sessionUser;
+  }
+
+  /**
+   * This method retrieves a parameter the endpoint can't do without.
+   *
+   * @throws IllegalArgumentException If the parameter is missing, so the request is answered with 400.
+   */
+  private static String getRequiredParameter(
+    Map<String, String> parameters,
+    String name
+  ) {
+    String value = parameters.get(name);
+
+    if (value == null || value.isBlank()) {
+      throw new IllegalArgumentException("The parameter " + name + " is required");
+    }
+
+    return value;
+  }
+
+  private static Response searchBooks(Map<String, String> parameters)
+    throws EntityNotFoundException {
+    String searchTerm = parameters.getOrDefault("search", "");
+    int pageSize = getPageSize(parameters);
+    String continuationToken = parameters.get("continuationToken");
+
+    return new Response(
+      200,
+      toJson(
+        Boolean.parseBoolean(parameters.get("ranked"))
+          ? Book.getRankedBooks(searchTerm, pageSize, continuationToken)
+          : Book.getBooks(searchTerm, pageSize, continuationToken)
+      )
+    );
+  }
+
+  private static Response availableBooks(Map<String, String> parameters) {
+    return new Response(
+      200,
+      toJson(
+        Book.getAvailableBooks(
+          getPageSize(parameters),
+          parameters.get("continuationToken")
+        )
+      )
+    );
+  }
+
+  private static Response completeBooks(Map<String, String> parameters) {
+    String maxResults = parameters.get("maxResults");
+
+    return new Response(
+      200,
+      completionsToJson(
+        Book.getCompletions(
+          parameters.getOrDefault("prefix", ""),
+          maxResults == null ? DEFAULT_COMPLETIONS : Integer.parseInt(maxResults)
+        )
+      )
+    );
+  }
+
+  private static int getPageSize(Map<String, String> parameters) {
+    String pageSize = parameters.get("pageSize");
+
+    return pageSize == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(pageSize);
+  }
+
+  private static Response borrowBook(
+    User borrower,
+    Map<String, String> parameters
+  )
+    throws EntityNotFoundException, LateBorrowingsException, BookAlreadyBorrowedException {
+    Book borrowedBook = Book.getByIsbn(getRequiredParameter(parameters, "isbn"));
+
+    BookBorrowing borrowing = new BookBorrowing(
+      borrowedBook,
+      borrower,
+      LocalDate.now()
+    );
+
+    return new Response(201, toJson(borrowing));
+  }
+
+  /**
+   * This method borrows a copy of a book to a user, waiting in the book's waitlist if none is available,
+   * so the client is answered as soon as a copy is returned to them instead of polling the available books.
+   * If no copy is handed over within waitSeconds (30 by default), the user leaves the waitlist.
+   * Each waiting request holds a thread, so waitSeconds can't be above 30 either.
+   */
+  private static Response reserveBook(
+    User borrower,
+    Map<String, String> parameters
+  )
+    throws EntityNotFoundException, LateBorrowingsException, BookAlreadyBorrowedException, InterruptedException {
+    Book reservedBook = Book.getByIsbn(getRequiredParameter(parameters, "isbn"));
+    long waitSeconds = getWaitSeconds(parameters);
+
+    CompletableFuture<BookBorrowing> reservation = BookBorrowing.reserve(
+      reservedBook,
+      borrower
+    );
+
+    return new Response(
+      201,
+      toJson(
+        awaitBorrowing(reservation, waitSeconds)
+      )
+    );
+  }
+
+  /**
+   * This method reads how long a reservation request may wait for a copy.
+   *
+   * @throws IllegalArgumentException If the time is not a number from 0 to 30 seconds.
+   */
+  private static long getWaitSeconds(Map<String, String> parameters) {
+    String waitSeconds = parameters.get("waitSeconds");
+
+    if (waitSeconds == null) {
+      return DEFAULT_WAIT_SECONDS;
+    }
+
+    long parsedWaitSeconds = Long.parseLong(waitSeconds);
+
+    if (parsedWaitSeconds < 0 || parsedWaitSeconds > MAX_WAIT_SECONDS) {
+      throw new IllegalArgumentException(
+        "The parameter waitSeconds must be from 0 to " + MAX_WAIT_SECONDS
+      );
+    }
+
+    return parsedWaitSeconds;
+  }
+
+  /**
+   * This method waits for a reserved copy to be borrowed to the user.
+   *
+   * @throws BookAlreadyBorrowedException If no copy was handed over in time, after leaving the waitlist.
+   * @throws LateBorrowingsException If the user had late borrowings when their turn came.
+   */
+  private static BookBorrowing awaitBorrowing(
+    CompletableFuture<BookBorrowing> reservation,
+    long waitSeconds
+  )
+    throws BookAlreadyBorrowedException, LateBorrowingsException, InterruptedException {
+    try {
+      try {
+        return reservation.get(waitSeconds, TimeUnit.SECONDS);
+      } catch (TimeoutException e) {
+        // Cancelling fails if a copy was handed over meanwhile, and then the borrowing is kept
+        if (reservation.cancel(false)) {
+          throw new BookAlreadyBorrowedException();
+        }
+
+        return reservation.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof LateBorrowingsException) {
+        throw (LateBorrowingsException) e.getCause();
+      }
+
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static Response returnBook(
+    User borrower,
+    Map<String, String> parameters
+  ) throws EntityNotFoundException {
+    BookBorrowing returnedBorrowing = BookBorrowing.getUserBorrowingByBookIsbn(
+      borrower,
+      getRequiredParameter(parameters, "isbn")
+    );
+
+    returnedBorrowing.returnBook();
+
+    return new Response(200, toJson(returnedBorrowing));
+  }
+
+  /**
+   * This method adds an endpoint to the server, measuring its latency as the operation "HttpApiService.<method> <path>".
+   */
+  private static void addEndpoint(
+    HttpServer server,
+    String path,
+    String method,
+    Endpoint endpoint
+  ) {
+    server.createContext(
+      path,
+      handle(
+        method,
+        false,
+        (sessionUser, parameters) -> endpoint.respond(parameters),
+        OperationMetrics.of("HttpApiService." + method + " " + path)
+      )
+    );
+  }
+
+  /**
+   * This method adds an endpoint that acts on behalf of the user whose session token is sent with the request.
+   */
+  private static void addSessionEndpoint(
+    HttpServer server,
+    String path,
+    String method,
+    SessionEndpoint endpoint
+  ) {
+    server.createContext(
+      path,
+      handle(
+        method,
+        true,
+        endpoint,
+        OperationMetrics.of("HttpApiService." + method + " " + path)
+      )
+    );
+  }
+
+  /**
+   * This method wraps an endpoint into a handler that checks the HTTP method and the session token,
+   * parses the parameters and maps the model exceptions to status codes.
+   * Any other exception is answered with 500 and printed with its stack trace to the standard error.
+   * The measured latency includes sending the response.
+   */
+  private static HttpHandler handle(
+    String method,
+    boolean requiresSession,
+    SessionEndpoint endpoint,
+    OperationMetrics metrics
+  ) {
+    return exchange -> {
+      long startTime = System.nanoTime();
+      Response response;
+
+      try {
+        if (!exchange.getRequestMethod().equals(method)) {
+          response = new Response(405, error("Use " + method));
+        } else {
+          User sessionUser = requiresSession ? getSessionUser(exchange) : null;
+          response = endpoint.respond(sessionUser, parseParameters(exchange));
+        }
+      } catch (InvalidSessionException e) {
+        response = new Response(401, error(e.getMessage()));
+      } catch (EntityNotFoundException e) {
+        response = new Response(404, error(e.getMessage()));
+      } catch (LateBorrowingsException e) {
+        response = new Response(403, error(e.getMessage()));
+      } catch (BookAlreadyBorrowedException e) {
+        response = new Response(409, error(e.getMessage()));
+      } catch (IllegalArgumentException e) {
+        response = new Response(400, error(e.getMessage()));
+      } catch (Exception e) {
+        System.err.println(
+          "The request " + method + " " + exchange.getRequestURI().getPath() + " failed:"
+        );
+        e.printStackTrace();
+        response = new Response(500, error("Unexpected error"));
+      }
+
+      try {
+        send(exchange, response);
+      } finally {
+        metrics.record(startTime);
+      }
+    };
+  }
+
+  private static Map<String, String> parseParameters(HttpExchange exchange)
+    throws IOException {
+    Map<String, String> parameters = new HashMap<>();
+    parseInto(exchange.getRequestURI().getRawQuery(), parameters);
+    parseInto(
+      new String(
+        exchange.getRequestBody().readAllBytes(),
+        StandardCharsets.UTF_8
+      ),
+      parameters
+    );
+
+    return parameters;
+  }
+
+  private static void parseInto(String encoded, Map<String, String> parameters) {
+    if (encoded == null || encoded.isBlank()) {
+      return;
+    }
+
+    for (String pair : encoded.split("&")) {
+      int separator = pair.indexOf('=');
+
+      if (separator <= 0) {
+        continue;
+      }
+
+      parameters.put(
+        URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8)
+      );
+    }
+  }
+
+  private static void send(HttpExchange exchange, Response response)
+    throws IOException {
+    byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+
+    exchange
+      .getResponseHeaders()
+      .set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(response.status, body.length);
+
+    try (OutputStream responseBody = exchange.getResponseBody()) {
+      responseBody.write(body);
+    }
+  }
+
+  /**
+   * This method creates the executor that runs the requests.
+   * Executors.newVirtualThreadPerTaskExecutor is looked up reflectively so the
+   * project still compiles on JDKs without virtual threads.
+   */
+  private static ExecutorService createRequestExecutor() {
+    try {
+      return (ExecutorService) Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  private static String toJson(User user, String token) {
+    return (
+      "{\"username\":" +
+      quote(user.getUsername()) +
+      ",\"type\":" +
+      quote(user.getType().toString()) +
+      ",\"token\":" +
+      quote(token) +
+      "}"
+    );
+  }
+
+  private static String toJson(Book book) {
+    return (
+      "{\"isbn\":" +
+      quote(book.getIsbn()) +
+      ",\"title\":" +
+      quote(book.getTitle()) +
+      ",\"author\":" +
+      quote(book.getAuthor()) +
+      ",\"genre\":" +
+      quote(book.getGenre().toString()) +
+      ",\"quantityAvailable\":" +
+      book.getQuantityAvailable() +
+      "}"
+    );
+  }
+
+  private static String toJson(List<Book> books) {
+    StringBuilder json = new StringBuilder("[");
+
+    for (int i = 0; i < books.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+
+      json.append(toJson(books.get(i)));
+    }
+
+    return json.append(']').toString();
+  }
+
+  private static String toJson(BookPage page) {
+    return (
+      "{\"books\":" +
+      toJson(page.getBooks()) +
+      ",\"continuationToken\":" +
+      (page.hasNextPage() ? quote(page.getContinuationToken()) : "null") +
+      "}"
+    );
+  }
+
+  private static String completionsToJson(List<String> completions) {
+    StringBuilder json = new StringBuilder("{\"completions\":[");
+
+    for (int i = 0; i < completions.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+
+      json.append(quote(completions.get(i)));
+    }
+
+    return json.append("]}").toString();
+  }
+
+  private static String toJson(BookBorrowing borrowing) {
+    return (
+      "{\"id\":" +
+      borrowing.getId() +
+      ",\"isbn\":" +
+      quote(borrowing.getBorrowedBook().getIsbn()) +
+      ",\"username\":" +
+      quote(borrowing.getBorrower().getUsername()) +
+      ",\"startDate\":" +
+      quote(borrowing.getStartDate().toString()) +
+      ",\"devolutionDate\":" +
+      quote(borrowing.getDevolutionDate().toString()) +
+      "}"
+    );
+  }
+
+  private static String error(String message) {
+    return "{\"error\":" + quote(message.strip()) + "}";
+  }
+
+  private static String quote(String value) {
+    StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+
+    for (int i = 0; i < value.length(); i++) {
+      char character = value.charAt(i);
+
+      switch (character) {
+        case '"' -> quoted.append("\\\"");
+        case '\\' -> quoted.append("\\\\");
+        case '\n' -> quoted.append("\\n");
+        case '\r' -> quoted.append("\\r");
+        case '\t' -> quoted.append("\\t");
+        default -> {
+          if (character < 0x20) {
+            quoted.append(String.format("\\u%04x", (int) character));
+          } else {
+            quoted.append(character);
+          }
+        }
+      }
+    }
+
+    return quoted.append('"').toString();
+  }
+
+  @FunctionalInterface
+  private interface Endpoint {
+    Response respond(Map<String, String> parameters) throws Exception;
+  }
+
+  @FunctionalInterface
+  private interface SessionEndpoint {
+    Response respond(User sessionUser, Map<String, String> parameters)
+      throws Exception;
+  }
+
+  private static class Response {
+
+    private int status;
+    private String body;
+
+    private Response(int status, String body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+}
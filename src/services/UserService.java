@@ -57,22 +57,19 @@ public class UserService {
 
     // Loop until a unique username is entered
     while (true) {
-      try {
-        System.out.print("Type the username: ");
-        username = System.console().readLine();
+      System.out.print("Type the username: ");
+      username = System.console().readLine();
 
-        // Check if the username already exists
-        User.getUserByUsername(username);
-        // If no exception was thrown, the username already exists
-        System.out.println("\nA user with this username already exists.");
-        System.out.println(
-          "----------------------------------------------------"
-        );
-      } catch (Exception e) {
-        // If an exception was thrown, the username does not exist
-        // The user can continue with the registration
+      // Check if the username already exists
+      if (!User.existsByUsername(username)) {
+        // The username does not exist, so the user can continue with the registration
         break;
       }
+
+      System.out.println("\nA user with this username already exists.");
+      System.out.println(
+        "----------------------------------------------------"
+      );
     }
 
     System.out.print("Type the password: ");